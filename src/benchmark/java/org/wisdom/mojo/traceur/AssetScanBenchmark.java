@@ -0,0 +1,158 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2014 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.mojo.traceur;
+
+import com.google.common.collect.ImmutableList;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wisdom.maven.utils.WatcherUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the scan of the asset directory and the selection of the files to compile.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AssetScanBenchmark {
+
+    /**
+     * The number of small EcmaScript 6 files.
+     */
+    @Param({"100", "1000"})
+    public int files;
+
+    /**
+     * The number of large minified vendor files.
+     */
+    @Param({"0", "10"})
+    public int vendors;
+
+    /**
+     * The size of the vendor files, in kilobytes.
+     */
+    @Param({"512"})
+    public int vendorSize;
+
+    /**
+     * The number of files selected by the {@code includes} wildcards.
+     */
+    @Param({"0", "100"})
+    public int included;
+
+    private File basedir;
+    private TraceurMojo warm;
+    private Collection<File> all;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        basedir = Files.createTempDirectory("traceur-scan").toFile();
+        File assets = new File(basedir, "src/main/resources/assets");
+        AssetTrees.es6(assets, files);
+        AssetTrees.vendors(assets, vendors, vendorSize);
+        AssetTrees.included(assets, included);
+        warm = mojo();
+        all = scan();
+        // Fill the marker cache.
+        select(warm);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        FileUtils.deleteQuietly(basedir);
+    }
+
+    private TraceurMojo mojo() {
+        TraceurMojo mojo = AssetTrees.mojo(basedir);
+        mojo.includes = new String[]{AssetTrees.INCLUDES};
+        return mojo;
+    }
+
+    private int select(TraceurMojo mojo) {
+        int count = 0;
+        for (File file : all) {
+            if (mojo.shouldBeCompiled(file)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Lists the JavaScript files of the asset directory.
+     */
+    @Benchmark
+    public Collection<File> scan() {
+        return WatcherUtils.getAllFilesFromDirectory(new File(basedir, "src/main/resources/assets"),
+                ImmutableList.of("js"));
+    }
+
+    /**
+     * Walks the asset directory with the streaming walker used by the plugin.
+     */
+    @Benchmark
+    public int walk() throws IOException {
+        final int[] count = {0};
+        new AssetWalker(new File(basedir, "src/main/resources/assets"), TraceurMojo.INPUT_EXTENSION, null)
+                .walk(new AssetWalker.Visitor() {
+                    @Override
+                    public void visit(File file) {
+                        count[0]++;
+                    }
+                });
+        return count[0];
+    }
+
+    /**
+     * Selects the files to compile, every file being read (first build).
+     */
+    @Benchmark
+    public int eligibilityCold() {
+        return select(mojo());
+    }
+
+    /**
+     * Selects the files to compile, with the results of a previous selection cached (watch mode).
+     */
+    @Benchmark
+    public int eligibilityWarm() {
+        return select(warm);
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2014 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.mojo.traceur;
+
+import com.google.common.base.Strings;
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Generates synthetic projects used by the benchmarks.
+ */
+public final class AssetTrees {
+
+    /**
+     * The include pattern matching the files generated by {@link #included(File, int)}.
+     */
+    public static final String INCLUDES = "widget-*.js";
+
+    private AssetTrees() {
+        // Avoid direct instantiation.
+    }
+
+    /**
+     * Creates a mojo working on the given project directory.
+     *
+     * @param basedir the project directory
+     * @return the mojo
+     */
+    public static TraceurMojo mojo(File basedir) {
+        TraceurMojo mojo = new TraceurMojo();
+        mojo.basedir = basedir;
+        mojo.version = "0.0.87";
+        mojo.buildDirectory = new File(basedir, "target");
+        mojo.output = "bench.js";
+        mojo.moduleStrategy = "inline";
+        return mojo;
+    }
+
+    /**
+     * Generates small EcmaScript 6 files containing the {@code !es6} marker.
+     *
+     * @param directory the directory
+     * @param count     the number of files
+     * @throws IOException if the files cannot be written
+     */
+    public static void es6(File directory, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            FileUtils.write(new File(directory, "modules/" + (i % 10) + "/module-" + i + ".es6.js"),
+                    "//!es6\n" +
+                            "class Module" + i + " {\n" +
+                            "    constructor(name = 'module-" + i + "') {\n" +
+                            "        this.name = name;\n" +
+                            "    }\n" +
+                            "    hello() {\n" +
+                            "        return `Hello ${this.name}`;\n" +
+                            "    }\n" +
+                            "}\n" +
+                            "var module" + i + " = new Module" + i + "();\n");
+        }
+    }
+
+    /**
+     * Generates large minified files without marker, like vendored libraries.
+     *
+     * @param directory the directory
+     * @param count     the number of files
+     * @param size      the size of each file in kilobytes
+     * @throws IOException if the files cannot be written
+     */
+    public static void vendors(File directory, int count, int size) throws IOException {
+        String chunk = "var a=function(b,c){return b.map(function(d){return d*c})};a([1,2,3],4);";
+        String content = Strings.repeat(chunk, size * 1024 / chunk.length() + 1);
+        for (int i = 0; i < count; i++) {
+            FileUtils.write(new File(directory, "libs/vendor-" + i + ".min.js"), content);
+        }
+    }
+
+    /**
+     * Generates files without marker, but matching {@link #INCLUDES}.
+     *
+     * @param directory the directory
+     * @param count     the number of files
+     * @throws IOException if the files cannot be written
+     */
+    public static void included(File directory, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            FileUtils.write(new File(directory, "widgets/widget-" + i + ".js"),
+                    "let widget" + i + " = () => " + i + ";\n");
+        }
+    }
+
+    /**
+     * Generates an error output as written by Traceur: some noise, and then the given number of errors.
+     *
+     * @param file   the erroneous file
+     * @param noise  the number of lines preceding the errors
+     * @param errors the number of errors
+     * @return the error output
+     */
+    public static String errorStream(File file, int noise, int errors) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < noise; i++) {
+            builder.append("    at Object.<anonymous> (/usr/lib/node_modules/traceur/src/node/command.js:")
+                    .append(i).append(":10)\n");
+        }
+        for (int i = 0; i < errors; i++) {
+            builder.append("[ '").append(file.getAbsolutePath()).append(':').append(i + 1)
+                    .append(":5: Unexpected token )' ]\n");
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2014 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.mojo.traceur;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the end-to-end compilation latency. Traceur is installed (or reused if already installed) during the
+ * setup, the build cache is disabled so every invocation runs Traceur.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 10)
+@Fork(1)
+public class CompileBenchmark {
+
+    /**
+     * The number of EcmaScript 6 files.
+     */
+    @Param({"10", "100"})
+    public int files;
+
+    /**
+     * Whether the incremental mode is enabled. As the sources do not change between invocations, the incremental
+     * mode only links the stored fragments.
+     */
+    @Param({"false", "true"})
+    public boolean incremental;
+
+    private File basedir;
+    private TraceurMojo mojo;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, MojoExecutionException {
+        basedir = new File("target/benchmarks/compile-" + files + (incremental ? "-incremental" : ""));
+        FileUtils.deleteQuietly(basedir);
+        AssetTrees.es6(new File(basedir, "src/main/resources/assets"), files);
+        mojo = AssetTrees.mojo(basedir);
+        mojo.incremental = incremental;
+        mojo.buildCache = false;
+        mojo.execute();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        FileUtils.deleteQuietly(basedir);
+    }
+
+    @Benchmark
+    public long compile() throws MojoExecutionException {
+        mojo.compile();
+        return new File(mojo.getInternalAssetOutputDirectory(), mojo.output).length();
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2014 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.mojo.traceur;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wisdom.maven.WatchingException;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the transformation of the Traceur error output into {@link WatchingException}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ErrorParsingBenchmark {
+
+    /**
+     * The number of lines preceding the errors.
+     */
+    @Param({"0", "10000"})
+    public int noise;
+
+    /**
+     * The number of errors.
+     */
+    @Param({"1", "1000"})
+    public int errors;
+
+    private TraceurMojo mojo;
+    private File source;
+    private String stream;
+
+    @Setup
+    public void setUp() {
+        source = new File("src/main/resources/assets/erroneous.es6.js");
+        mojo = AssetTrees.mojo(new File("target/benchmarks/errors"));
+        stream = AssetTrees.errorStream(source, noise, errors);
+    }
+
+    @Benchmark
+    public WatchingException build() {
+        return mojo.build(stream, source);
+    }
+}
@@ -0,0 +1,425 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2014 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.mojo.traceur;
+
+import com.google.common.base.Charsets;
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.wisdom.maven.WatchingException;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Measures the edit-to-compiled latency of the watch mode, by driving {@link TraceurMojo#fileCreated(File)},
+ * {@link TraceurMojo#fileUpdated(File)} and {@link TraceurMojo#fileDeleted(File)} with scripted edit patterns on a
+ * synthetic project, as {@code wisdom:run} does:
+ * <ul>
+ * <li>{@code singleEdit} - one file is saved</li>
+ * <li>{@code burstSave} - several files are saved at once ("save all")</li>
+ * <li>{@code branchSwitch} - half of the files are rewritten, one file is deleted and another one created</li>
+ * <li>{@code compileError} - a syntax error is introduced, the latency is measured until the error is reported</li>
+ * </ul>
+ * For each pattern, the p50, p99 and max latencies and the number of Node processes started per edit are printed and
+ * written to {@code target/watch-latency.json}. The run fails when a threshold is exceeded.
+ * <p>
+ * It is not run by the regular build. Run it with:
+ * <pre>
+ * mvn test -Pbenchmarks -Dtest=WatchLatencyHarness -Dlatency.p99=3000
+ * </pre>
+ * Settings (system properties): {@code latency.files} (50), {@code latency.iterations} (20),
+ * {@code latency.burst} (10), {@code latency.daemon}, {@code latency.batch}, {@code latency.incremental},
+ * {@code latency.quietPeriod} (ms). Thresholds, disabled when {@code 0}: {@code latency.p50} and
+ * {@code latency.p99} (ms), {@code latency.processes} (Node processes per edit). Node processes started during a
+ * scenario are only counted on Java 9+.
+ */
+public class WatchLatencyHarness {
+
+    private static final long WAIT_TIMEOUT = TimeUnit.MINUTES.toMillis(1);
+
+    private static final int FILES = Integer.getInteger("latency.files", 50);
+    private static final int ITERATIONS = Integer.getInteger("latency.iterations", 20);
+    private static final int BURST = Integer.getInteger("latency.burst", 10);
+    private static final long P50 = Long.getLong("latency.p50", 0);
+    private static final long P99 = Long.getLong("latency.p99", 0);
+    private static final double PROCESSES = Double.parseDouble(System.getProperty("latency.processes", "0"));
+
+    private static final Map<String, String> RESULTS = new LinkedHashMap<>();
+
+    private final File basedir = new File("target/benchmarks/watch-latency");
+    private final File assets = new File(basedir, "src/main/resources/assets");
+    private final List<String> errors = Collections.synchronizedList(new ArrayList<String>());
+    private final ProcessSampler sampler = new ProcessSampler();
+    private final AtomicInteger tokens = new AtomicInteger();
+
+    private TraceurMojo mojo;
+    private File output;
+
+    @BeforeClass
+    public static void printSettings() {
+        System.out.println("Watch latency harness: " + FILES + " files, " + ITERATIONS + " iterations");
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        FileUtils.deleteQuietly(basedir);
+        AssetTrees.es6(assets, FILES);
+        mojo = AssetTrees.mojo(basedir);
+        mojo.daemon = Boolean.getBoolean("latency.daemon");
+        mojo.batch = Boolean.getBoolean("latency.batch");
+        mojo.incremental = Boolean.getBoolean("latency.incremental");
+        mojo.quietPeriod = Long.getLong("latency.quietPeriod", 0);
+        mojo.setLog(new SystemStreamLog() {
+            // SystemStreamLog.info() prints regardless of isInfoEnabled(), and printing would skew the measures.
+            @Override
+            public boolean isInfoEnabled() {
+                return false;
+            }
+
+            @Override
+            public void info(CharSequence content) {
+                // Silenced.
+            }
+
+            @Override
+            public void info(CharSequence content, Throwable error) {
+                // Silenced.
+            }
+
+            @Override
+            public void info(Throwable error) {
+                // Silenced.
+            }
+
+            @Override
+            public void error(CharSequence content) {
+                errors.add(content.toString());
+            }
+
+            @Override
+            public void error(CharSequence content, Throwable error) {
+                errors.add(content.toString());
+            }
+        });
+        mojo.execute();
+        output = new File(mojo.getInternalAssetOutputDirectory(), mojo.output);
+        assertThat(output).isFile();
+    }
+
+    @After
+    public void tearDown() {
+        sampler.stop();
+        FileUtils.deleteQuietly(basedir);
+    }
+
+    @AfterClass
+    public static void writeReport() throws IOException {
+        StringBuilder json = new StringBuilder("{\n");
+        int i = 0;
+        for (Map.Entry<String, String> entry : RESULTS.entrySet()) {
+            json.append("  \"").append(entry.getKey()).append("\": ").append(entry.getValue())
+                    .append(++i < RESULTS.size() ? ",\n" : "\n");
+        }
+        FileUtils.writeStringToFile(new File("target/watch-latency.json"), json.append("}\n").toString(),
+                Charsets.UTF_8);
+    }
+
+    @Test
+    public void singleEdit() throws Exception {
+        List<Long> latencies = new ArrayList<>();
+        sampler.start();
+        for (int i = 0; i < ITERATIONS; i++) {
+            File file = source(i);
+            String token = edit(file);
+            long start = System.nanoTime();
+            fire(file, false);
+            awaitOutput(token);
+            latencies.add(elapsed(start));
+        }
+        check("singleEdit", latencies);
+    }
+
+    @Test
+    public void burstSave() throws Exception {
+        List<Long> latencies = new ArrayList<>();
+        sampler.start();
+        for (int i = 0; i < ITERATIONS; i++) {
+            List<File> files = new ArrayList<>();
+            List<String> edits = new ArrayList<>();
+            for (int j = 0; j < Math.min(BURST, FILES); j++) {
+                File file = source(i * BURST + j);
+                files.add(file);
+                edits.add(edit(file));
+            }
+            long start = System.nanoTime();
+            for (File file : files) {
+                fire(file, false);
+            }
+            awaitOutput(edits.toArray(new String[edits.size()]));
+            latencies.add(elapsed(start));
+        }
+        check("burstSave", latencies);
+    }
+
+    @Test
+    public void branchSwitch() throws Exception {
+        List<Long> latencies = new ArrayList<>();
+        File previous = null;
+        sampler.start();
+        for (int i = 0; i < ITERATIONS; i++) {
+            List<File> changed = new ArrayList<>();
+            String token = null;
+            for (int j = i % 2; j < FILES; j += 2) {
+                File file = source(j);
+                token = edit(file);
+                changed.add(file);
+            }
+            File created = new File(assets, "features/feature-" + i + ".es6.js");
+            FileUtils.write(created, "//!es6\nclass Feature" + i + " {}\n");
+            if (previous != null) {
+                FileUtils.forceDelete(previous);
+            }
+
+            long start = System.nanoTime();
+            for (File file : changed) {
+                fire(file, false);
+            }
+            if (previous != null) {
+                mojo.fileDeleted(previous);
+            }
+            fire(created, true);
+            awaitOutput(token, "Feature" + i);
+            latencies.add(elapsed(start));
+            previous = created;
+        }
+        check("branchSwitch", latencies);
+    }
+
+    @Test
+    public void compileError() throws Exception {
+        List<Long> latencies = new ArrayList<>();
+        sampler.start();
+        for (int i = 0; i < ITERATIONS; i++) {
+            File file = source(i);
+            String original = FileUtils.readFileToString(file, Charsets.UTF_8);
+            FileUtils.write(file, original + "\nvar broken" + i + " = (;\n");
+            errors.clear();
+            long start = System.nanoTime();
+            try {
+                mojo.fileUpdated(file);
+            } catch (WatchingException e) { //NOSONAR
+                // Expected without quiet period, the error is also logged.
+            }
+            awaitError();
+            latencies.add(elapsed(start));
+
+            // Fixed, not measured.
+            FileUtils.write(file, original);
+            String token = edit(file);
+            fire(file, false);
+            awaitOutput(token);
+        }
+        check("compileError", latencies);
+    }
+
+    private File source(int index) {
+        int i = index % FILES;
+        return new File(assets, "modules/" + (i % 10) + "/module-" + i + ".es6.js");
+    }
+
+    /**
+     * Appends a statement containing a unique token to the given file.
+     */
+    private String edit(File file) throws IOException {
+        String token = "edit" + tokens.incrementAndGet();
+        FileUtils.write(file, "var " + token + " = `" + token + "`;\n", true);
+        return token;
+    }
+
+    private void fire(File file, boolean created) throws WatchingException {
+        if (created) {
+            mojo.fileCreated(file);
+        } else {
+            mojo.fileUpdated(file);
+        }
+    }
+
+    private void awaitOutput(String... tokens) throws Exception {
+        long deadline = System.currentTimeMillis() + WAIT_TIMEOUT;
+        while (System.currentTimeMillis() < deadline) {
+            if (output.isFile()) {
+                String content = FileUtils.readFileToString(output, Charsets.UTF_8);
+                boolean found = true;
+                for (String token : tokens) {
+                    if (!content.contains(token)) {
+                        found = false;
+                        break;
+                    }
+                }
+                if (found) {
+                    return;
+                }
+            }
+            Thread.sleep(1);
+        }
+        throw new AssertionError("The output has not been updated within " + WAIT_TIMEOUT + " ms");
+    }
+
+    private void awaitError() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + WAIT_TIMEOUT;
+        while (System.currentTimeMillis() < deadline) {
+            if (!errors.isEmpty()) {
+                return;
+            }
+            Thread.sleep(1);
+        }
+        throw new AssertionError("No compilation error reported within " + WAIT_TIMEOUT + " ms");
+    }
+
+    private static long elapsed(long start) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    private void check(String scenario, List<Long> latencies) {
+        int processes = sampler.stop();
+        Collections.sort(latencies);
+        long p50 = percentile(latencies, 50);
+        long p99 = percentile(latencies, 99);
+        long max = latencies.get(latencies.size() - 1);
+        double perEdit = (double) processes / latencies.size();
+        System.out.println(String.format("%-14s p50 %5d ms, p99 %5d ms, max %5d ms, %.2f Node process(es) per edit",
+                scenario, p50, p99, max, perEdit));
+        RESULTS.put(scenario, "{\"p50Ms\": " + p50 + ", \"p99Ms\": " + p99 + ", \"maxMs\": " + max
+                + ", \"nodeProcessesPerEdit\": " + String.format("%.2f", perEdit) + "}");
+
+        if (P50 > 0) {
+            assertThat(p50).as(scenario + " p50 latency (ms)").isLessThanOrEqualTo(P50);
+        }
+        if (P99 > 0) {
+            assertThat(p99).as(scenario + " p99 latency (ms)").isLessThanOrEqualTo(P99);
+        }
+        if (PROCESSES > 0 && sampler.isSupported()) {
+            assertThat(perEdit).as(scenario + " Node processes per edit").isLessThanOrEqualTo(PROCESSES);
+        }
+    }
+
+    /**
+     * Nearest-rank percentile, as computed by {@link CompilationMetrics.History}.
+     */
+    private static long percentile(List<Long> sorted, int percentile) {
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.size()) - 1;
+        return sorted.get(Math.max(0, Math.min(index, sorted.size() - 1)));
+    }
+
+    /**
+     * Counts the distinct child processes of the JVM seen while running, by polling {@code ProcessHandle} (Java 9+,
+     * used by reflection). Node processes live far longer than the polling period.
+     */
+    private static final class ProcessSampler implements Runnable {
+        private final Set<Object> seen = Collections.newSetFromMap(new ConcurrentHashMap<Object, Boolean>());
+        private final Set<Object> existing = new HashSet<>();
+        private volatile Thread thread;
+
+        boolean isSupported() {
+            try {
+                Class.forName("java.lang.ProcessHandle");
+                return true;
+            } catch (ClassNotFoundException e) { //NOSONAR
+                return false;
+            }
+        }
+
+        void start() {
+            seen.clear();
+            existing.clear();
+            if (isSupported()) {
+                // Processes already running (such as the daemon started by the initial build) are not counted.
+                existing.addAll(sample());
+                thread = new Thread(this, "process-sampler");
+                thread.setDaemon(true);
+                thread.start();
+            }
+        }
+
+        int stop() {
+            Thread current = thread;
+            thread = null;
+            if (current != null) {
+                current.interrupt();
+                try {
+                    current.join();
+                } catch (InterruptedException e) { //NOSONAR
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return seen.size();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    for (Object pid : sample()) {
+                        if (!existing.contains(pid)) {
+                            seen.add(pid);
+                        }
+                    }
+                    Thread.sleep(5);
+                }
+            } catch (InterruptedException e) { //NOSONAR
+                // Stopped.
+            }
+        }
+
+        private static List<Object> sample() {
+            List<Object> pids = new ArrayList<>();
+            try {
+                Class<?> handle = Class.forName("java.lang.ProcessHandle");
+                Object stream = handle.getMethod("descendants").invoke(handle.getMethod("current").invoke(null));
+                Iterator<?> iterator = (Iterator<?>) Class.forName("java.util.stream.BaseStream")
+                        .getMethod("iterator").invoke(stream);
+                while (iterator.hasNext()) {
+                    pids.add(handle.getMethod("pid").invoke(iterator.next()));
+                }
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Cannot list the child processes", e);
+            }
+            return pids;
+        }
+    }
+}
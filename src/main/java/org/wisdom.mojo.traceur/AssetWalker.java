@@ -0,0 +1,193 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2014 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.mojo.traceur;
+
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystemLoopException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Walks an asset directory, and passes each file having the given extension and not excluded to a visitor.
+ * <p>
+ * The walk is streamed: files are handed to the visitor as they are found, so no list of all the files of the tree
+ * is built. Excluded directories are pruned before being entered, so their content is never listed. Symbolic links
+ * are followed; links to a parent directory, broken links and files that cannot be read are skipped.
+ * <p>
+ * Exclusion patterns are globs ({@link java.nio.file.FileSystem#getPathMatcher(String)}) matched against the path
+ * relative to the asset directory, using {@code /} as separator, such as {@code libs/**}, {@code **}{@code
+ * /node_modules/**} or {@code **}{@code /*.min.js}. A leading {@code **}{@code /} also matches files and directories
+ * located at the root. A directory is pruned when a pattern ending with {@code /**} matches it.
+ */
+public class AssetWalker {
+
+    private static final Set<FileVisitOption> FOLLOW_LINKS = EnumSet.of(FileVisitOption.FOLLOW_LINKS);
+
+    /**
+     * Receives the files found by the walk.
+     */
+    public interface Visitor {
+        /**
+         * Visits a file.
+         *
+         * @param file the file
+         * @throws IOException if the file cannot be processed, it stops the walk
+         */
+        void visit(File file) throws IOException;
+    }
+
+    private final File root;
+    private final String extension;
+    private final List<PathMatcher> files = new ArrayList<>();
+    private final List<PathMatcher> directories = new ArrayList<>();
+    private final Log log;
+
+    /**
+     * Creates the walker. The files that cannot be read are skipped silently.
+     *
+     * @param root      the asset directory
+     * @param extension the extension of the visited files (such as {@code .js})
+     * @param excludes  the exclusion patterns, may be {@code null}
+     */
+    public AssetWalker(File root, String extension, String[] excludes) {
+        this(root, extension, excludes, null);
+    }
+
+    /**
+     * Creates the walker.
+     *
+     * @param root      the asset directory
+     * @param extension the extension of the visited files (such as {@code .js})
+     * @param excludes  the exclusion patterns, may be {@code null}
+     * @param log       the logger reporting the files that cannot be read, may be {@code null}
+     */
+    public AssetWalker(File root, String extension, String[] excludes, Log log) {
+        this.root = root;
+        this.extension = extension;
+        this.log = log;
+        if (excludes != null) {
+            for (String exclude : excludes) {
+                String pattern = exclude.trim().replace('\\', '/');
+                files.add(FileSystems.getDefault().getPathMatcher("glob:" + pattern));
+                if (pattern.endsWith("/**")) {
+                    directories.add(FileSystems.getDefault().getPathMatcher("glob:"
+                            + pattern.substring(0, pattern.length() - 3)));
+                }
+            }
+        }
+    }
+
+    /**
+     * Walks the asset directory. Nothing is done if the directory does not exist.
+     *
+     * @param visitor the visitor
+     * @return the number of visited files
+     * @throws IOException if the directory cannot be walked, or if the visitor failed
+     */
+    public int walk(final Visitor visitor) throws IOException {
+        if (!root.isDirectory()) {
+            return 0;
+        }
+        final Path base = root.toPath();
+        final int[] count = {0};
+        Files.walkFileTree(base, FOLLOW_LINKS, Integer.MAX_VALUE, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                if (!dir.equals(base) && matches(directories, base.relativize(dir))) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                if (attrs.isRegularFile() && file.getFileName().toString().endsWith(extension)
+                        && !matches(files, base.relativize(file))) {
+                    count[0]++;
+                    visitor.visit(file.toFile());
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                // Files deleted during the walk and links to a parent directory are expected.
+                if (!(exc instanceof NoSuchFileException) && !(exc instanceof FileSystemLoopException)
+                        && log != null) {
+                    log.debug("Cannot read " + file + ", skipping it", exc);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return count[0];
+    }
+
+    /**
+     * Checks whether the given file is excluded, either directly or because it is located in an excluded directory.
+     *
+     * @param file the file
+     * @return {@code true} if the file is located in the asset directory and is excluded, {@code false} otherwise
+     */
+    public boolean isExcluded(File file) {
+        Path base = root.getAbsoluteFile().toPath().normalize();
+        Path path = file.getAbsoluteFile().toPath().normalize();
+        if (!path.startsWith(base) || path.equals(base)) {
+            return false;
+        }
+        Path relative = base.relativize(path);
+        if (matches(files, relative)) {
+            return true;
+        }
+        for (Path parent = relative.getParent(); parent != null; parent = parent.getParent()) {
+            if (matches(directories, parent)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean matches(List<PathMatcher> matchers, Path relative) {
+        if (matchers.isEmpty()) {
+            return false;
+        }
+        // Lets '**/' patterns match at the root too.
+        Path rooted = relative.getFileSystem().getPath("/").resolve(relative);
+        for (PathMatcher matcher : matchers) {
+            if (matcher.matches(relative) || matcher.matches(rooted)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
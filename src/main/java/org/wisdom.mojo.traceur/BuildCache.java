@@ -0,0 +1,121 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2014 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.mojo.traceur;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * A persistent cache remembering, for each output file, the fingerprint of the inputs and settings used to
+ * generate it. When the fingerprint computed for a new compilation matches the stored one, and the output file
+ * still exists, the compilation can be skipped.
+ * <p>
+ * The fingerprint covers the path and the content of every input file (in order), the output file path and
+ * the given compiler settings. Entries are stored as one small file per output in the cache directory.
+ */
+public class BuildCache {
+
+    private final File directory;
+
+    /**
+     * Creates the cache.
+     *
+     * @param directory the directory in which fingerprints are stored, created if needed.
+     */
+    public BuildCache(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Computes the fingerprint of a compilation.
+     *
+     * @param output   the output file
+     * @param inputs   the input files, in the order they are passed to the compiler
+     * @param settings the compiler settings influencing the output
+     * @return the fingerprint
+     * @throws IOException if an input file cannot be read
+     */
+    public String fingerprint(File output, List<File> inputs, String... settings) throws IOException {
+        Hasher hasher = Hashing.sha1().newHasher();
+        hasher.putString(output.getAbsolutePath(), Charsets.UTF_8);
+        for (String setting : settings) {
+            hasher.putString(String.valueOf(setting), Charsets.UTF_8).putByte((byte) 0);
+        }
+        for (File input : inputs) {
+            hasher.putString(input.getAbsolutePath(), Charsets.UTF_8).putByte((byte) 0);
+            hasher.putBytes(Files.asByteSource(input).hash(Hashing.sha1()).asBytes());
+        }
+        return hasher.hash().toString();
+    }
+
+    /**
+     * Checks whether the given output is up to date.
+     *
+     * @param output      the output file
+     * @param fingerprint the fingerprint of the compilation that would generate the output
+     * @return {@code true} if the output exists and was generated from a compilation having the same
+     * fingerprint, {@code false} otherwise
+     */
+    public boolean isUpToDate(File output, String fingerprint) {
+        File entry = getEntry(output);
+        if (!output.isFile() || !entry.isFile()) {
+            return false;
+        }
+        try {
+            return fingerprint.equals(FileUtils.readFileToString(entry, Charsets.UTF_8).trim());
+        } catch (IOException e) { //NOSONAR
+            // Unreadable entry, consider the output outdated.
+            return false;
+        }
+    }
+
+    /**
+     * Records the fingerprint of a successful compilation.
+     *
+     * @param output      the generated file
+     * @param fingerprint the fingerprint
+     * @throws IOException if the entry cannot be written
+     */
+    public void store(File output, String fingerprint) throws IOException {
+        FileUtils.writeStringToFile(getEntry(output), fingerprint, Charsets.UTF_8);
+    }
+
+    /**
+     * Removes the entry associated with the given output, if any. This method must be called before the
+     * output is regenerated, so a failed compilation never leaves a stale entry behind.
+     *
+     * @param output the output file
+     */
+    public void invalidate(File output) {
+        FileUtils.deleteQuietly(getEntry(output));
+    }
+
+    private File getEntry(File output) {
+        return new File(directory, Hashing.sha1().hashString(output.getAbsolutePath(), Charsets.UTF_8)
+                .toString());
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2014 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.mojo.traceur;
+
+import org.apache.commons.io.FilenameUtils;
+
+import java.io.File;
+
+/**
+ * The definition of an output bundle, configured in the {@code bundles} parameter:
+ * <pre>
+ * &lt;bundles&gt;
+ *     &lt;bundle&gt;
+ *         &lt;output&gt;admin.js&lt;/output&gt;
+ *         &lt;includes&gt;
+ *             &lt;include&gt;admin/*&lt;/include&gt;
+ *         &lt;/includes&gt;
+ *         &lt;moduleStrategy&gt;register&lt;/moduleStrategy&gt;
+ *     &lt;/bundle&gt;
+ * &lt;/bundles&gt;
+ * </pre>
+ * The includes are wildcard patterns. Patterns containing a {@code /} are matched against the path relative to the
+ * asset directory, the others against the file name. A bundle without includes contains all the files that would
+ * be compiled without bundle definition (files matching the global {@code includes}, or containing the {@code !es6}
+ * or {@code !ecmascript6} markers). When not set, the module strategy is the global one.
+ */
+public class Bundle {
+
+    private String output;
+
+    private String[] includes;
+
+    private String moduleStrategy;
+
+    /**
+     * Creates an empty bundle, used by Maven.
+     */
+    public Bundle() {
+        // Configured by Maven.
+    }
+
+    /**
+     * Creates a bundle.
+     *
+     * @param output         the output file name
+     * @param includes       the include patterns, may be {@code null}
+     * @param moduleStrategy the module strategy, {@code null} to use the global one
+     */
+    public Bundle(String output, String[] includes, String moduleStrategy) {
+        this.output = output;
+        this.includes = includes;
+        this.moduleStrategy = moduleStrategy;
+    }
+
+    /**
+     * @return the output file name.
+     */
+    public String getOutput() {
+        return output;
+    }
+
+    /**
+     * @param output the output file name.
+     */
+    public void setOutput(String output) {
+        this.output = output;
+    }
+
+    /**
+     * @return the include patterns, {@code null} if not set.
+     */
+    public String[] getIncludes() {
+        return includes;
+    }
+
+    /**
+     * @param includes the include patterns.
+     */
+    public void setIncludes(String[] includes) {
+        this.includes = includes;
+    }
+
+    /**
+     * @return the module strategy, {@code null} if not set.
+     */
+    public String getModuleStrategy() {
+        return moduleStrategy;
+    }
+
+    /**
+     * @param moduleStrategy the module strategy.
+     */
+    public void setModuleStrategy(String moduleStrategy) {
+        this.moduleStrategy = moduleStrategy;
+    }
+
+    /**
+     * Checks whether the given file matches the include patterns of the bundle.
+     *
+     * @param root the asset directory containing the file
+     * @param file the file
+     * @return {@code true} if the file matches one of the patterns, {@code false} otherwise (including when the
+     * bundle has no include patterns)
+     */
+    public boolean matches(File root, File file) {
+        if (includes == null) {
+            return false;
+        }
+        String path = file.getAbsolutePath();
+        String base = root.getAbsolutePath() + File.separator;
+        if (path.startsWith(base)) {
+            path = path.substring(base.length());
+        }
+        path = path.replace(File.separatorChar, '/');
+        for (String include : includes) {
+            String pattern = include.trim().replace('\\', '/');
+            String candidate = pattern.contains("/") ? path : file.getName();
+            if (FilenameUtils.wildcardMatch(candidate, pattern)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return output;
+    }
+}
@@ -0,0 +1,262 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2014 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.mojo.traceur;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Publishes a compiled bundle for long-term caching: writes a copy of the bundle named after the hash of its content
+ * ({@code acme-1a2b3c4d5e6f.js}), records the mapping from the logical name to the hashed name in a manifest, and
+ * writes gzip-compressed siblings ({@code .gz}) that can be served as is.
+ * <p>
+ * When the content has not changed since the last publication, the published files are left untouched, so the
+ * watchers of the output directory are not triggered. The copy of the previous version of the bundle, as recorded
+ * in the manifest, is removed; other files of the directory are never deleted, even if their name looks hashed.
+ * <p>
+ * The manifest ({@link #MANIFEST}) is a JSON object mapping each logical name to its hashed name. It is shared by
+ * all the bundles of an output directory.
+ */
+public class BundlePublisher {
+
+    /**
+     * The name of the manifest file, written in the output directory.
+     */
+    public static final String MANIFEST = "traceur-manifest.json";
+
+    /**
+     * The extension of the precompressed files.
+     */
+    public static final String GZIP_EXTENSION = ".gz";
+
+    private static final int HASH_LENGTH = 12;
+
+    private static final Pattern ENTRY = Pattern.compile("\"([^\"]+)\"\\s*:\\s*\"([^\"]+)\"");
+
+    private final boolean hashed;
+    private final boolean precompressed;
+
+    /**
+     * Creates the publisher.
+     *
+     * @param hashed        whether the content-hashed copy and the manifest are written
+     * @param precompressed whether the gzip-compressed siblings are written
+     */
+    public BundlePublisher(boolean hashed, boolean precompressed) {
+        this.hashed = hashed;
+        this.precompressed = precompressed;
+    }
+
+    /**
+     * Gets the name of the content-hashed copy of the given bundle.
+     *
+     * @param bundle the bundle
+     * @param hash   the hash of the content of the bundle
+     * @return the name of the copy
+     */
+    public static String getHashedName(File bundle, String hash) {
+        String name = bundle.getName();
+        String extension = FilenameUtils.getExtension(name);
+        if (extension.isEmpty()) {
+            return name + "-" + hash;
+        }
+        return FilenameUtils.removeExtension(name) + "-" + hash + "." + extension;
+    }
+
+    /**
+     * Publishes the given bundle.
+     *
+     * @param bundle the compiled bundle
+     * @return the number of bytes written
+     * @throws IOException if a file cannot be written
+     */
+    public long publish(File bundle) throws IOException {
+        if (!hashed && !precompressed) {
+            return 0;
+        }
+        byte[] content = Files.toByteArray(bundle);
+        String hash = Hashing.sha1().hashBytes(content).toString().substring(0, HASH_LENGTH);
+        File directory = bundle.getParentFile();
+        long written = 0;
+
+        byte[] compressed = precompressed ? gzip(content) : null;
+        if (precompressed) {
+            written += writeIfChanged(new File(directory, bundle.getName() + GZIP_EXTENSION), compressed);
+        }
+        if (hashed) {
+            String name = getHashedName(bundle, hash);
+            File manifest = new File(directory, MANIFEST);
+            removePreviousVersion(bundle, readManifest(manifest).get(bundle.getName()), name);
+            written += writeIfChanged(new File(directory, name), content);
+            if (precompressed) {
+                written += writeIfChanged(new File(directory, name + GZIP_EXTENSION), compressed);
+            }
+            updateManifest(manifest, bundle.getName(), name);
+        }
+        return written;
+    }
+
+    static byte[] gzip(byte[] content) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(content.length / 3 + 64);
+        // The GZIP header written by the JDK has no timestamp, so the same content always gives the same bytes.
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(content);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Writes the given file, unless it already has the given content. The file is written to a temporary file and
+     * then renamed, so it is never read half-written.
+     *
+     * @return the number of bytes written
+     */
+    static long writeIfChanged(File file, byte[] content) throws IOException {
+        if (file.isFile() && file.length() == content.length && Arrays.equals(Files.toByteArray(file), content)) {
+            return 0;
+        }
+        File tmp = createTemporaryFile(file);
+        try {
+            Files.write(content, tmp);
+            move(tmp, file);
+        } finally {
+            FileUtils.deleteQuietly(tmp);
+        }
+        return content.length;
+    }
+
+    /**
+     * Creates a temporary file in the directory of the given file, so it can be renamed atomically to this file.
+     * Its name starts with a dot, so it is ignored by most watchers and servers, and keeps the extension of the file
+     * (such as {@code .acme-123.tmp.js}).
+     *
+     * @param file the file
+     * @return the temporary file, empty
+     * @throws IOException if the file cannot be created
+     */
+    static File createTemporaryFile(File file) throws IOException {
+        FileUtils.forceMkdir(file.getParentFile());
+        String extension = FilenameUtils.getExtension(file.getName());
+        return File.createTempFile("." + FilenameUtils.removeExtension(file.getName()) + "-",
+                ".tmp" + (extension.isEmpty() ? "" : "." + extension), file.getParentFile());
+    }
+
+    /**
+     * Replaces the given file by the replacement file, unless they have the same content. The replacement is
+     * renamed (atomically if the file system supports it) or deleted.
+     *
+     * @param file        the file to replace
+     * @param replacement the replacement, located in the same directory
+     * @return the number of bytes written, {@code 0} if the file has not changed
+     * @throws IOException if the file cannot be replaced
+     */
+    static long replaceIfChanged(File file, File replacement) throws IOException {
+        long length = replacement.length();
+        if (file.isFile() && file.length() == length && Files.equal(file, replacement)) {
+            FileUtils.deleteQuietly(replacement);
+            return 0;
+        }
+        move(replacement, file);
+        return length;
+    }
+
+    private static void move(File source, File destination) throws IOException {
+        try {
+            java.nio.file.Files.move(source.toPath(), destination.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) { //NOSONAR
+            java.nio.file.Files.move(source.toPath(), destination.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Removes the copy of the given bundle published previously, unless it is the current one. Only hashed names of
+     * this bundle are considered, so an edited manifest cannot delete other files.
+     */
+    private static void removePreviousVersion(File bundle, String previous, String current) {
+        if (previous == null || previous.equals(current)) {
+            return;
+        }
+        String base = FilenameUtils.removeExtension(bundle.getName());
+        String extension = FilenameUtils.getExtension(bundle.getName());
+        Pattern hashedName = Pattern.compile(Pattern.quote(base) + "-[0-9a-f]{" + HASH_LENGTH + "}"
+                + (extension.isEmpty() ? "" : Pattern.quote("." + extension)));
+        if (hashedName.matcher(previous).matches()) {
+            FileUtils.deleteQuietly(new File(bundle.getParentFile(), previous));
+            FileUtils.deleteQuietly(new File(bundle.getParentFile(), previous + GZIP_EXTENSION));
+        }
+    }
+
+    /**
+     * Reads the manifest of an output directory.
+     *
+     * @param manifest the manifest file
+     * @return the mapping from the logical names to the hashed names, empty if the manifest does not exist
+     * @throws IOException if the manifest cannot be read
+     */
+    public static Map<String, String> readManifest(File manifest) throws IOException {
+        Map<String, String> entries = new TreeMap<>();
+        if (manifest.isFile()) {
+            Matcher matcher = ENTRY.matcher(FileUtils.readFileToString(manifest, Charsets.UTF_8));
+            while (matcher.find()) {
+                entries.put(matcher.group(1), matcher.group(2));
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Maps the given logical name to the given published name in the manifest.
+     *
+     * @param manifest the manifest file
+     * @param logical  the logical name
+     * @param name     the published name
+     * @throws IOException if the manifest cannot be read or written
+     */
+    static void updateManifest(File manifest, String logical, String name) throws IOException {
+        // Bundles of the same directory may be published concurrently.
+        synchronized (BundlePublisher.class) {
+            Map<String, String> entries = readManifest(manifest);
+            entries.put(logical, name);
+            StringBuilder json = new StringBuilder("{\n");
+            int i = 0;
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                json.append("  \"").append(entry.getKey()).append("\": \"").append(entry.getValue()).append('"')
+                        .append(++i < entries.size() ? ",\n" : "\n");
+            }
+            writeIfChanged(manifest, json.append("}\n").toString().getBytes(Charsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2014 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.mojo.traceur;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+
+/**
+ * A compilation error reported by Traceur: the erroneous file, the position of the error and its reason.
+ * <p>
+ * Traceur reports all the errors of a compilation at once, as an array printed by Node: one {@code 'file:line:column:
+ * reason'} entry per line, the first one prefixed by {@code [}, and the last one followed by {@code ]}. Other lines
+ * (stack traces, warnings...) are ignored.
+ */
+public class CompilationError {
+
+    private final File file;
+    private final int line;
+    private final int character;
+    private final String reason;
+
+    /**
+     * Creates the error.
+     *
+     * @param file      the erroneous file
+     * @param line      the line of the error
+     * @param character the column of the error
+     * @param reason    the reason
+     */
+    public CompilationError(File file, int line, int character, String reason) {
+        this.file = file;
+        this.line = line;
+        this.character = character;
+        this.reason = reason;
+    }
+
+    /**
+     * Parses all the errors from the error output of Traceur.
+     *
+     * @param stream the error output, may be {@code null}
+     * @return the errors, in the order they have been reported, empty if none can be parsed
+     */
+    public static List<CompilationError> parse(String stream) {
+        if (stream == null || stream.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<CompilationError> errors = new ArrayList<>();
+        for (String entry : stream.split("\n")) {
+            // Most lines of a large output are noise, they are skipped without running the regex.
+            if (entry.indexOf('\'') == -1) {
+                continue;
+            }
+            Matcher matcher = TraceurMojo.TRACEUR_COMPILATION_ERROR.matcher(entry.trim());
+            if (matcher.matches() && !matcher.group(2).isEmpty() && !matcher.group(3).isEmpty()) {
+                errors.add(new CompilationError(new File(matcher.group(1)), Integer.parseInt(matcher.group(2)),
+                        Integer.parseInt(matcher.group(3)), matcher.group(4).trim().replace("\\'", "'")));
+            }
+        }
+        return errors;
+    }
+
+    /**
+     * @return the erroneous file, as reported by Traceur
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * @return the line of the error
+     */
+    public int getLine() {
+        return line;
+    }
+
+    /**
+     * @return the column of the error
+     */
+    public int getCharacter() {
+        return character;
+    }
+
+    /**
+     * @return the reason of the error
+     */
+    public String getReason() {
+        return reason;
+    }
+
+    /**
+     * @return the error formatted as {@code file:line:column: reason}
+     */
+    @Override
+    public String toString() {
+        return file.getPath() + ":" + line + ":" + character + ": " + reason;
+    }
+}
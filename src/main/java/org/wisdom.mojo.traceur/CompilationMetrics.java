@@ -0,0 +1,296 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2014 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.mojo.traceur;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Collects the metrics of a compilation: the wall-clock and CPU time spent in each phase, the number of files
+ * scanned and compiled, and the number of bytes read and written. Instances are thread safe, as both asset
+ * directories are compiled concurrently.
+ * <p>
+ * The CPU time is the CPU time of the Maven threads, it does not include the time spent in the Node processes.
+ */
+public class CompilationMetrics {
+
+    /**
+     * The phases of a compilation.
+     */
+    public enum Phase {
+        /**
+         * Installation or resolution of Traceur.
+         */
+        INSTALL,
+        /**
+         * Walk of the asset directories. As files are selected while walking, this phase includes the
+         * {@link #MARKER_DETECTION} and {@link #FILTERED_LOOKUP} phases.
+         */
+        SCAN,
+        /**
+         * Search of the {@code !es6} markers.
+         */
+        MARKER_DETECTION,
+        /**
+         * Search of the filtered version of the sources.
+         */
+        FILTERED_LOOKUP,
+        /**
+         * Execution of Traceur.
+         */
+        COMPILATION,
+        /**
+         * Minification of the output files.
+         */
+        MINIFICATION,
+        /**
+         * Writing of the output files done by the plugin (assembly of the fragments, hashed and compressed
+         * copies...).
+         */
+        WRITE
+    }
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final long start = System.nanoTime();
+    private final long startTimestamp = System.currentTimeMillis();
+    private long wallTime = -1;
+
+    private final AtomicLongArray count = new AtomicLongArray(Phase.values().length);
+    private final AtomicLongArray wall = new AtomicLongArray(Phase.values().length);
+    private final AtomicLongArray cpu = new AtomicLongArray(Phase.values().length);
+
+    private final AtomicLong filesScanned = new AtomicLong();
+    private final AtomicLong filesCompiled = new AtomicLong();
+    private final AtomicLong bytesRead = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+
+    /**
+     * A measure in progress.
+     */
+    public final class Measure {
+        private final Phase phase;
+        private final long wallStart = System.nanoTime();
+        private final long cpuStart = cpuTime();
+
+        private Measure(Phase phase) {
+            this.phase = phase;
+        }
+
+        /**
+         * Ends the measure, and records it.
+         */
+        public void stop() {
+            int index = phase.ordinal();
+            count.incrementAndGet(index);
+            wall.addAndGet(index, System.nanoTime() - wallStart);
+            long end = cpuTime();
+            if (end >= 0 && cpuStart >= 0) {
+                cpu.addAndGet(index, end - cpuStart);
+            }
+        }
+    }
+
+    private static long cpuTime() {
+        if (THREADS.isCurrentThreadCpuTimeSupported()) {
+            return THREADS.getCurrentThreadCpuTime();
+        }
+        return -1;
+    }
+
+    /**
+     * Starts measuring a phase. The measure must be stopped by the same thread.
+     *
+     * @param phase the phase
+     * @return the measure
+     */
+    public Measure start(Phase phase) {
+        return new Measure(phase);
+    }
+
+    /**
+     * @param files the number of files listed in the asset directories
+     */
+    public void scanned(long files) {
+        filesScanned.addAndGet(files);
+    }
+
+    /**
+     * @param files the number of files passed to Traceur
+     */
+    public void compiled(long files) {
+        filesCompiled.addAndGet(files);
+    }
+
+    /**
+     * @param bytes the number of bytes read
+     */
+    public void read(long bytes) {
+        bytesRead.addAndGet(bytes);
+    }
+
+    /**
+     * @param bytes the number of bytes written
+     */
+    public void written(long bytes) {
+        bytesWritten.addAndGet(bytes);
+    }
+
+    /**
+     * Marks the end of the compilation.
+     */
+    public synchronized void finish() {
+        if (wallTime < 0) {
+            wallTime = System.nanoTime() - start;
+        }
+    }
+
+    /**
+     * @return the wall-clock time of the compilation in milliseconds, {@code -1} if not finished.
+     */
+    public synchronized long getWallTime() {
+        return wallTime < 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(wallTime);
+    }
+
+    /**
+     * @return a one-line summary of the compilation.
+     */
+    public String summary() {
+        StringBuilder builder = new StringBuilder("Traceur: ")
+                .append(filesCompiled.get()).append(" file(s) compiled out of ")
+                .append(filesScanned.get()).append(" scanned in ")
+                .append(getWallTime()).append(" ms (");
+        for (Phase phase : Phase.values()) {
+            if (phase.ordinal() > 0) {
+                builder.append(", ");
+            }
+            builder.append(name(phase)).append(": ")
+                    .append(TimeUnit.NANOSECONDS.toMillis(wall.get(phase.ordinal()))).append(" ms");
+        }
+        return builder.append("), ").append(bytesRead.get()).append(" bytes read, ")
+                .append(bytesWritten.get()).append(" bytes written").toString();
+    }
+
+    /**
+     * @return the metrics in JSON.
+     */
+    public String toJson() {
+        StringBuilder builder = new StringBuilder("{\n")
+                .append("    \"timestamp\": ").append(startTimestamp).append(",\n")
+                .append("    \"wallTimeMs\": ").append(getWallTime()).append(",\n")
+                .append("    \"filesScanned\": ").append(filesScanned.get()).append(",\n")
+                .append("    \"filesCompiled\": ").append(filesCompiled.get()).append(",\n")
+                .append("    \"bytesRead\": ").append(bytesRead.get()).append(",\n")
+                .append("    \"bytesWritten\": ").append(bytesWritten.get()).append(",\n")
+                .append("    \"phases\": {\n");
+        for (Phase phase : Phase.values()) {
+            int index = phase.ordinal();
+            builder.append("      \"").append(name(phase)).append("\": {")
+                    .append("\"count\": ").append(count.get(index)).append(", ")
+                    .append("\"wallTimeMs\": ").append(TimeUnit.NANOSECONDS.toMillis(wall.get(index)))
+                    .append(", ")
+                    .append("\"cpuTimeMs\": ").append(TimeUnit.NANOSECONDS.toMillis(cpu.get(index)))
+                    .append("}").append(index < Phase.values().length - 1 ? ",\n" : "\n");
+        }
+        return builder.append("    }\n  }").toString();
+    }
+
+    private static String name(Phase phase) {
+        StringBuilder builder = new StringBuilder();
+        boolean upper = false;
+        for (char c : phase.name().toLowerCase(Locale.ENGLISH).toCharArray()) {
+            if (c == '_') {
+                upper = true;
+            } else {
+                builder.append(upper ? Character.toUpperCase(c) : c);
+                upper = false;
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Keeps the durations of the last compilations triggered in watch mode.
+     */
+    public static class History {
+
+        private final int size;
+        private final LinkedList<Long> durations = new LinkedList<>();
+        private long events;
+
+        /**
+         * @param size the number of compilations kept
+         */
+        public History(int size) {
+            this.size = size;
+        }
+
+        /**
+         * Records a compilation.
+         *
+         * @param metrics the finished metrics
+         */
+        public synchronized void add(CompilationMetrics metrics) {
+            events++;
+            durations.addLast(metrics.getWallTime());
+            if (durations.size() > size) {
+                durations.removeFirst();
+            }
+        }
+
+        /**
+         * @return a one-line summary of the last compilations.
+         */
+        public synchronized String summary() {
+            return String.format(Locale.ENGLISH,
+                    "Traceur watch mode: %d compilation(s), last %d: p50 %d ms, p95 %d ms, max %d ms",
+                    events, durations.size(), percentile(50), percentile(95), percentile(100));
+        }
+
+        /**
+         * @return the statistics in JSON.
+         */
+        public synchronized String toJson() {
+            return "{\"events\": " + events + ", \"window\": " + durations.size()
+                    + ", \"lastMs\": " + (durations.isEmpty() ? -1 : durations.getLast())
+                    + ", \"p50Ms\": " + percentile(50)
+                    + ", \"p95Ms\": " + percentile(95)
+                    + ", \"maxMs\": " + percentile(100) + "}";
+        }
+
+        private long percentile(int percentile) {
+            if (durations.isEmpty()) {
+                return -1;
+            }
+            List<Long> sorted = new ArrayList<>(durations);
+            Collections.sort(sorted);
+            int index = (int) Math.ceil(percentile / 100.0 * sorted.size()) - 1;
+            return sorted.get(Math.max(0, index));
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2014 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.mojo.traceur;
+
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.File;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesces the file events received in watch mode into a single compilation.
+ * <p>
+ * Every event (re)starts a quiet period. When no event has been received during this period, the task is run once
+ * with all the files changed since the last run (duplicates are merged). If an event arrives while the task is
+ * running, the running task is interrupted (killing the Traceur process), and a new run, covering its files, is
+ * scheduled.
+ */
+public class CompilationScheduler {
+
+    /**
+     * The compilation task.
+     */
+    public interface Task {
+        /**
+         * Compiles.
+         *
+         * @param changes the files changed since the last run
+         * @throws Exception if the compilation failed or was interrupted
+         */
+        void run(Set<File> changes) throws Exception; //NOSONAR
+    }
+
+    private final long quietPeriod;
+    private final Task task;
+    private final Log log;
+    private final ScheduledExecutorService executor;
+
+    private final Set<File> pending = new LinkedHashSet<>();
+    private Future<?> next;
+
+    /**
+     * Incremented on every event, used to detect superseded runs.
+     */
+    private long generation;
+
+    /**
+     * Creates the scheduler.
+     *
+     * @param quietPeriod the quiet period in milliseconds
+     * @param task        the task
+     * @param log         the logger
+     */
+    public CompilationScheduler(long quietPeriod, Task task, Log log) {
+        this.quietPeriod = quietPeriod;
+        this.task = task;
+        this.log = log;
+        this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "traceur-scheduler");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Records a changed file, and (re)schedules the compilation.
+     *
+     * @param file the file
+     */
+    public synchronized void schedule(File file) {
+        pending.add(file);
+        generation++;
+        if (next != null) {
+            // Either not started yet, or outdated.
+            next.cancel(true);
+        }
+        next = executor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                execute();
+            }
+        }, quietPeriod, TimeUnit.MILLISECONDS);
+    }
+
+    private void execute() {
+        Set<File> changes;
+        long started;
+        synchronized (this) {
+            changes = new LinkedHashSet<>(pending);
+            pending.clear();
+            started = generation;
+        }
+        if (changes.isEmpty()) {
+            return;
+        }
+        try {
+            task.run(changes);
+        } catch (Exception e) { //NOSONAR
+            synchronized (this) {
+                if (started != generation) {
+                    // Superseded by a newer change, the files are compiled by the next run.
+                    log.debug("Compilation of " + changes + " superseded by newer changes");
+                    pending.addAll(changes);
+                    return;
+                }
+            }
+            log.debug("Compilation of " + changes + " failed", e);
+        }
+    }
+
+    /**
+     * Stops the scheduler, pending compilations are discarded.
+     */
+    public void stop() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,375 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2014 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.mojo.traceur;
+
+import com.google.common.base.Charsets;
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Indexes the {@code import} / {@code export ... from} relationships between EcmaScript 6 files.
+ * <p>
+ * The dependencies of a file are found by a lightweight scan of its import statements. Only relative module names
+ * ({@code ./x}, {@code ../x}) are tracked, they are resolved against the directory of the importing file. Results are
+ * cached by path, size and last modification date, and persisted in a file, so unchanged files are not scanned again
+ * by the next builds.
+ * <p>
+ * The index provides a stable topological order (dependencies first, ties broken by path), so the same set of files
+ * is always passed to the compiler in the same order. It also provides the transitive dependencies of a file, used
+ * to find the files affected by a change.
+ */
+public class DependencyIndex {
+
+    /**
+     * Matches {@code import x from 'y'}, {@code import {a, b} from 'y'}, {@code import 'y'},
+     * {@code export * from 'y'}, {@code export {a} from 'y'} and {@code module x from 'y'}.
+     */
+    private static final Pattern IMPORT = Pattern.compile(
+            "(?:^|[;\\s])(?:(?:import|export)\\s+(?:[\\w*${}\\s,]+?\\s+from\\s+)?|module\\s+[\\w$]+\\s+from\\s+)"
+                    + "['\"]([^'\"]+)['\"]");
+
+    /**
+     * The characters after which a {@code /} starts a regular expression literal rather than a division.
+     */
+    private static final String BEFORE_REGEX = "(,=:[!&|?{};+-*%<>~^";
+
+    private final File storage;
+
+    private Map<File, Entry> entries;
+
+    private boolean dirty;
+
+    /**
+     * Creates the index.
+     *
+     * @param storage the file in which the index is persisted
+     */
+    public DependencyIndex(File storage) {
+        this.storage = storage;
+    }
+
+    /**
+     * Gets the files directly imported by the given file.
+     *
+     * @param file the file
+     * @return the imported files (that may not exist), empty if the file cannot be read
+     */
+    public synchronized Set<File> getImports(File file) {
+        File key = normalize(file);
+        Map<File, Entry> index = load();
+        Entry entry = index.get(key);
+        long length = key.length();
+        long lastModified = key.lastModified();
+        if (entry == null || entry.length != length || entry.lastModified != lastModified) {
+            entry = new Entry(length, lastModified, scan(key));
+            index.put(key, entry);
+            dirty = true;
+        }
+        return entry.imports;
+    }
+
+    /**
+     * Gets the transitive dependencies of the given file.
+     *
+     * @param file the file
+     * @return the files imported directly or indirectly by the file, in a stable order, without the file itself
+     */
+    public synchronized List<File> getDependencies(File file) {
+        Set<File> visited = new LinkedHashSet<>();
+        collect(normalize(file), visited);
+        visited.remove(normalize(file));
+        List<File> dependencies = new ArrayList<>(visited);
+        Collections.sort(dependencies);
+        return dependencies;
+    }
+
+    private void collect(File file, Set<File> visited) {
+        if (!visited.add(file)) {
+            return;
+        }
+        for (File imported : getImports(file)) {
+            if (imported.isFile()) {
+                collect(imported, visited);
+            }
+        }
+    }
+
+    /**
+     * Checks whether one of the given files is, or depends (directly or indirectly) on, one of the changed files.
+     *
+     * @param files   the files
+     * @param changes the changed files
+     * @return {@code true} if one of the files is affected by the changes
+     */
+    public synchronized boolean isAffected(Collection<File> files, Collection<File> changes) {
+        Set<File> changed = new HashSet<>();
+        for (File change : changes) {
+            changed.add(normalize(change));
+        }
+        Set<File> visited = new HashSet<>();
+        for (File file : files) {
+            collect(normalize(file), visited);
+        }
+        for (File file : visited) {
+            if (changed.contains(file)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Sorts the given files in a topological order: a file is placed after the files it depends on (directly or
+     * through files not in the list). Independent files, and files involved in a cycle, are sorted by path. The
+     * result only depends on the files and their content, not on the order of the given list.
+     *
+     * @param files the files
+     * @return the sorted files (the given instances)
+     */
+    public synchronized List<File> sort(List<File> files) {
+        final Map<File, File> originals = new HashMap<>();
+        for (File file : files) {
+            originals.put(normalize(file), file);
+        }
+        // Dependencies within the list.
+        Map<File, Set<File>> dependencies = new HashMap<>();
+        Map<File, Set<File>> dependents = new HashMap<>();
+        for (File file : originals.keySet()) {
+            dependencies.put(file, new HashSet<File>());
+            dependents.put(file, new HashSet<File>());
+        }
+        for (File file : originals.keySet()) {
+            for (File dependency : getDependencies(file)) {
+                if (originals.containsKey(dependency)) {
+                    dependencies.get(file).add(dependency);
+                    dependents.get(dependency).add(file);
+                }
+            }
+        }
+
+        List<File> sorted = new ArrayList<>(files.size());
+        TreeSet<File> remaining = new TreeSet<>(originals.keySet());
+        TreeSet<File> ready = new TreeSet<>();
+        for (File file : remaining) {
+            if (dependencies.get(file).isEmpty()) {
+                ready.add(file);
+            }
+        }
+        while (!remaining.isEmpty()) {
+            // On cycles, the first remaining file (by path) is released.
+            File next = ready.isEmpty() ? remaining.first() : ready.first();
+            ready.remove(next);
+            remaining.remove(next);
+            sorted.add(originals.get(next));
+            for (File dependent : dependents.get(next)) {
+                Set<File> pending = dependencies.get(dependent);
+                pending.remove(next);
+                if (pending.isEmpty() && remaining.contains(dependent)) {
+                    ready.add(dependent);
+                }
+            }
+        }
+        return sorted;
+    }
+
+    /**
+     * Forgets the cached imports of the given file.
+     *
+     * @param file the file
+     */
+    public synchronized void invalidate(File file) {
+        if (load().remove(normalize(file)) != null) {
+            dirty = true;
+        }
+    }
+
+    /**
+     * Persists the index, if it has changed.
+     *
+     * @throws IOException if the index cannot be written
+     */
+    public synchronized void save() throws IOException {
+        if (!dirty) {
+            return;
+        }
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<File, Entry> entry : new TreeMap<>(entries).entrySet()) {
+            if (!entry.getKey().isFile()) {
+                // Deleted file.
+                continue;
+            }
+            StringBuilder line = new StringBuilder(entry.getKey().getPath()).append('\t')
+                    .append(entry.getValue().length).append('\t').append(entry.getValue().lastModified);
+            for (File imported : entry.getValue().imports) {
+                line.append('\t').append(imported.getPath());
+            }
+            lines.add(line.toString());
+        }
+        FileUtils.writeLines(storage, Charsets.UTF_8.name(), lines, "\n");
+        dirty = false;
+    }
+
+    private Map<File, Entry> load() {
+        if (entries != null) {
+            return entries;
+        }
+        entries = new HashMap<>();
+        if (!storage.isFile()) {
+            return entries;
+        }
+        try {
+            for (String line : FileUtils.readLines(storage, Charsets.UTF_8)) {
+                String[] segments = line.split("\t");
+                if (segments.length < 3) {
+                    continue;
+                }
+                Set<File> imports = new LinkedHashSet<>();
+                for (int i = 3; i < segments.length; i++) {
+                    imports.add(new File(segments[i]));
+                }
+                entries.put(new File(segments[0]), new Entry(Long.parseLong(segments[1]),
+                        Long.parseLong(segments[2]), imports));
+            }
+        } catch (IOException | NumberFormatException e) { //NOSONAR
+            // Corrupted index, files are scanned again.
+            entries.clear();
+        }
+        return entries;
+    }
+
+    private static Set<File> scan(File file) {
+        Set<File> imports = new LinkedHashSet<>();
+        String content;
+        try {
+            content = FileUtils.readFileToString(file, Charsets.UTF_8);
+        } catch (IOException e) { //NOSONAR
+            // Deleted or unreadable, no dependencies.
+            return imports;
+        }
+        Matcher matcher = IMPORT.matcher(stripComments(content));
+        while (matcher.find()) {
+            String name = matcher.group(1);
+            if (name.startsWith("./") || name.startsWith("../")) {
+                if (!name.endsWith(TraceurMojo.INPUT_EXTENSION)) {
+                    name = name + TraceurMojo.INPUT_EXTENSION;
+                }
+                imports.add(normalize(new File(file.getParentFile(), name)));
+            }
+        }
+        return imports;
+    }
+
+    /**
+     * Removes the comments of the given code. String, template and regular expression literals are skipped, so
+     * {@code "assets/*"} or {@code 'http://...'} do not start a comment, and are kept as is.
+     */
+    static String stripComments(String code) {
+        StringBuilder result = new StringBuilder(code.length());
+        int length = code.length();
+        // The last character that is neither a whitespace nor part of a comment, to tell regexes from divisions.
+        char previous = ';';
+        int i = 0;
+        while (i < length) {
+            char c = code.charAt(i);
+            char next = i + 1 < length ? code.charAt(i + 1) : 0;
+            if (c == '/' && next == '/') {
+                while (i < length && code.charAt(i) != '\n') {
+                    i++;
+                }
+            } else if (c == '/' && next == '*') {
+                int end = code.indexOf("*/", i + 2);
+                i = end < 0 ? length : end + 2;
+                result.append(' ');
+            } else if (c == '\'' || c == '"' || c == '`' || (c == '/' && BEFORE_REGEX.indexOf(previous) >= 0)) {
+                int end = skipLiteral(code, i);
+                result.append(code, i, end);
+                previous = c;
+                i = end;
+            } else {
+                result.append(c);
+                if (!Character.isWhitespace(c)) {
+                    previous = c;
+                }
+                i++;
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * Finds the end of the string, template or regular expression literal starting at the given index.
+     *
+     * @return the index following the closing delimiter, or the end of the line (of the code for templates) if the
+     * literal is not closed
+     */
+    private static int skipLiteral(String code, int start) {
+        char delimiter = code.charAt(start);
+        boolean inClass = false;
+        int i = start + 1;
+        while (i < code.length()) {
+            char c = code.charAt(i);
+            if (c == '\\') {
+                i += 2;
+                continue;
+            }
+            if (c == '\n' && delimiter != '`') {
+                return i;
+            }
+            if (delimiter == '/' && (c == '[' || c == ']')) {
+                inClass = c == '[';
+            } else if (c == delimiter && !inClass) {
+                return i + 1;
+            }
+            i++;
+        }
+        return code.length();
+    }
+
+    private static File normalize(File file) {
+        return file.getAbsoluteFile().toPath().normalize().toFile();
+    }
+
+    private static class Entry {
+        private final long length;
+        private final long lastModified;
+        private final Set<File> imports;
+
+        private Entry(long length, long lastModified, Set<File> imports) {
+            this.length = length;
+            this.lastModified = lastModified;
+            this.imports = imports;
+        }
+    }
+}
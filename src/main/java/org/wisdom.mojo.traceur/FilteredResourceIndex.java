@@ -0,0 +1,154 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2014 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.mojo.traceur;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An in-memory index of the files of an asset output directory, used to find the filtered (or copied) version of
+ * the sources without probing the file system for each of them.
+ * <p>
+ * The filtered version of a source is the file having the same path, relative to the output directory, as the source
+ * relative to the asset directory. The output directory is walked once, on the first lookup, and then each lookup is
+ * a set lookup. As the index does not watch the output directory, it is refreshed for the changed sources in watch
+ * mode (see {@link #refresh(File)}).
+ */
+public class FilteredResourceIndex {
+
+    private final File source;
+    private final File destination;
+    private final String extension;
+
+    /**
+     * The paths (relative to the output directory, using {@code /} as separator) of the indexed files. {@code null}
+     * until the output directory has been walked.
+     */
+    private volatile Set<String> paths;
+
+    /**
+     * Creates the index.
+     *
+     * @param source      the asset directory
+     * @param destination the output directory, containing the filtered versions
+     * @param extension   the extension of the indexed files (such as {@code .js})
+     */
+    public FilteredResourceIndex(File source, File destination, String extension) {
+        this.source = source;
+        this.destination = destination;
+        this.extension = extension;
+    }
+
+    /**
+     * Gets the filtered version of the given source.
+     *
+     * @param file the source, located in the asset directory
+     * @return the filtered version, {@code null} if there is none, or if the file is not located in the asset
+     * directory
+     * @throws IOException if the output directory cannot be walked
+     */
+    public File getFilteredVersion(File file) throws IOException {
+        String path = relativize(file);
+        if (path == null || !getPaths().contains(path)) {
+            return null;
+        }
+        return new File(destination, path);
+    }
+
+    /**
+     * Refreshes the entry of the given source, as its filtered version may have been created, updated or deleted.
+     * Nothing is done if the index has not been loaded yet.
+     *
+     * @param file the source, located in the asset directory
+     */
+    public void refresh(File file) {
+        String path = relativize(file);
+        Set<String> current = paths;
+        if (path == null || current == null) {
+            return;
+        }
+        if (new File(destination, path).isFile()) {
+            current.add(path);
+        } else {
+            current.remove(path);
+        }
+    }
+
+    /**
+     * Gets the source of the given filtered version.
+     *
+     * @param filtered the filtered version, located in the output directory
+     * @return the source, {@code null} if the file is not located in the output directory
+     */
+    public File getSource(File filtered) {
+        String root = destination.getAbsolutePath() + File.separator;
+        String path = filtered.getAbsolutePath();
+        if (!path.startsWith(root)) {
+            return null;
+        }
+        return new File(source, path.substring(root.length()));
+    }
+
+    /**
+     * @return the number of indexed files, {@code 0} if the index has not been loaded yet
+     */
+    public int size() {
+        Set<String> current = paths;
+        return current == null ? 0 : current.size();
+    }
+
+    private Set<String> getPaths() throws IOException {
+        Set<String> current = paths;
+        if (current == null) {
+            synchronized (this) {
+                current = paths;
+                if (current == null) {
+                    current = load();
+                    paths = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private Set<String> load() throws IOException {
+        final Set<String> loaded = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+        final String root = destination.getAbsolutePath() + File.separator;
+        new AssetWalker(destination, extension, null).walk(new AssetWalker.Visitor() {
+            @Override
+            public void visit(File file) {
+                loaded.add(file.getAbsolutePath().substring(root.length()).replace(File.separatorChar, '/'));
+            }
+        });
+        return loaded;
+    }
+
+    private String relativize(File file) {
+        String root = source.getAbsolutePath() + File.separator;
+        String path = file.getAbsolutePath();
+        if (!path.startsWith(root)) {
+            return null;
+        }
+        return path.substring(root.length()).replace(File.separatorChar, '/');
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2014 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.mojo.traceur;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Stores the compiled fragments of the sources composing an output bundle, used by the incremental mode. Each
+ * source is compiled to its own fragment, and the bundle is rebuilt by concatenating the fragments. A fragment is
+ * recompiled only when the content of its source, or the compiler settings, have changed.
+ * <p>
+ * Fragments are stored in a directory dedicated to the bundle, and named after the path of their source. As
+ * Traceur names the modules relative to the output directory, fragments are compiled next to the bundle, and then
+ * moved to the store ({@link #put(File, File)}).
+ */
+public class FragmentStore {
+
+    private final File directory;
+    private final BuildCache index;
+
+    /**
+     * Creates the store of the fragments of the given bundle.
+     *
+     * @param root   the root directory of all fragment stores
+     * @param bundle the bundle file
+     */
+    public FragmentStore(File root, File bundle) {
+        this.directory = new File(root, name(bundle));
+        this.index = new BuildCache(new File(directory, "index"));
+    }
+
+    private static String name(File file) {
+        return Hashing.sha1().hashString(file.getAbsolutePath(), Charsets.UTF_8).toString();
+    }
+
+    /**
+     * Gets the fragment file of the given source. The file may not exist.
+     *
+     * @param source the source
+     * @return the fragment file
+     */
+    public File getFragment(File source) {
+        return new File(directory, name(source) + TraceurMojo.INPUT_EXTENSION);
+    }
+
+    /**
+     * Moves the given compiled file to the fragment of the given source, replacing the previous fragment.
+     *
+     * @param source   the source
+     * @param compiled the compiled source
+     * @throws IOException if the fragment cannot be written
+     */
+    public void put(File source, File compiled) throws IOException {
+        FileUtils.forceMkdir(directory);
+        Files.move(compiled.toPath(), getFragment(source).toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Computes the fingerprint of the fragment of the given source.
+     *
+     * @param source   the source file
+     * @param settings the compiler settings
+     * @return the fingerprint
+     * @throws IOException if the source cannot be read
+     */
+    public String fingerprint(File source, String... settings) throws IOException {
+        return fingerprint(source, Collections.<File>emptyList(), settings);
+    }
+
+    /**
+     * Computes the fingerprint of the fragment of the given source, including the content of the files it depends
+     * on. As the module strategy may inline the imported modules in the fragment, it must be recompiled when one of
+     * its dependencies changes.
+     *
+     * @param source       the source file
+     * @param dependencies the files the source depends on
+     * @param settings     the compiler settings
+     * @return the fingerprint
+     * @throws IOException if the source or one of its dependencies cannot be read
+     */
+    public String fingerprint(File source, List<File> dependencies, String... settings) throws IOException {
+        List<File> inputs = new ArrayList<>(dependencies.size() + 1);
+        inputs.add(source);
+        inputs.addAll(dependencies);
+        return index.fingerprint(getFragment(source), inputs, settings);
+    }
+
+    /**
+     * Checks whether the fragment of the given source is up to date.
+     *
+     * @param source      the source
+     * @param fingerprint the fingerprint computed by {@link #fingerprint(File, List, String...)}
+     * @return {@code true} if the fragment does not need to be recompiled
+     */
+    public boolean isUpToDate(File source, String fingerprint) {
+        return index.isUpToDate(getFragment(source), fingerprint);
+    }
+
+    /**
+     * Records that the fragment of the given source has been compiled successfully.
+     *
+     * @param source      the source
+     * @param fingerprint the fingerprint computed by {@link #fingerprint(File, List, String...)}
+     * @throws IOException if the fingerprint cannot be stored
+     */
+    public void store(File source, String fingerprint) throws IOException {
+        index.store(getFragment(source), fingerprint);
+    }
+
+    /**
+     * Removes the fragment of the given source.
+     *
+     * @param source the source
+     */
+    public void remove(File source) {
+        File fragment = getFragment(source);
+        index.invalidate(fragment);
+        FileUtils.deleteQuietly(fragment);
+    }
+
+    /**
+     * Removes all the fragments not belonging to the given sources, typically because their source has been
+     * deleted.
+     *
+     * @param sources the current set of sources
+     */
+    public void retain(Collection<File> sources) {
+        Set<File> kept = new HashSet<>();
+        for (File source : sources) {
+            kept.add(getFragment(source));
+        }
+        File[] fragments = directory.listFiles();
+        if (fragments == null) {
+            return;
+        }
+        for (File fragment : fragments) {
+            if (fragment.isFile() && !kept.contains(fragment)) {
+                index.invalidate(fragment);
+                FileUtils.deleteQuietly(fragment);
+            }
+        }
+    }
+
+    /**
+     * Writes the bundle by concatenating the fragments of the given sources, in the given order.
+     *
+     * @param sources the sources
+     * @param bundle  the bundle file
+     * @throws IOException if the bundle cannot be written
+     */
+    public void concat(Iterable<File> sources, File bundle) throws IOException {
+        FileUtils.forceMkdir(bundle.getParentFile());
+        try (OutputStream out = new FileOutputStream(bundle)) {
+            for (File source : sources) {
+                FileUtils.copyFile(getFragment(source), out);
+                out.write('\n');
+            }
+        }
+    }
+}
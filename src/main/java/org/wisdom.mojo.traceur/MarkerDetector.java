@@ -0,0 +1,172 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2014 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.mojo.traceur;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Detects whether a file contains one of the {@code !es6} or {@code !ecmascript6} markers (case insensitive).
+ * <p>
+ * Files are streamed through a fixed-size buffer, so the memory consumption does not depend on the file size.
+ * The scan can be limited to the first bytes of the file. The markers are plain ASCII, so they are searched
+ * directly on the bytes, which works for any ASCII-compatible encoding (UTF-8, ISO-8859-1...).
+ * <p>
+ * Results are cached by path, size and last modification date, so unchanged files are never read twice.
+ */
+public class MarkerDetector {
+
+    private static final byte[][] MARKERS = {
+            "!ecmascript6".getBytes(), "!es6".getBytes()
+    };
+
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * The number of bytes kept from the previous chunk, so markers crossing chunk boundaries are detected.
+     */
+    private static final int OVERLAP = MARKERS[0].length - 1;
+
+    private final long limit;
+
+    private final ConcurrentMap<String, Entry> cache = new ConcurrentHashMap<>();
+
+    private final AtomicLong bytesRead = new AtomicLong();
+
+    /**
+     * Creates a detector.
+     *
+     * @param limit the number of bytes to scan at the beginning of each file, {@code 0} or a negative number to
+     *              scan the whole file
+     */
+    public MarkerDetector(long limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * Checks whether the given file contains a marker.
+     *
+     * @param file the file
+     * @return {@code true} if the file contains a marker (in the scanned part), {@code false} otherwise
+     * @throws IOException if the file cannot be read
+     */
+    public boolean containsMarker(File file) throws IOException {
+        String key = file.getAbsolutePath();
+        long length = file.length();
+        long lastModified = file.lastModified();
+        Entry entry = cache.get(key);
+        if (entry != null && entry.length == length && entry.lastModified == lastModified) {
+            return entry.result;
+        }
+        boolean result = scan(file);
+        cache.put(key, new Entry(length, lastModified, result));
+        return result;
+    }
+
+    private boolean scan(File file) throws IOException {
+        byte[] buffer = new byte[OVERLAP + BUFFER_SIZE];
+        int carried = 0;
+        long read = 0;
+        try (InputStream in = new FileInputStream(file)) {
+            while (limit <= 0 || read < limit) {
+                int max = BUFFER_SIZE;
+                if (limit > 0) {
+                    max = (int) Math.min(max, limit - read);
+                }
+                int count = in.read(buffer, carried, max);
+                if (count < 0) {
+                    return false;
+                }
+                read += count;
+                bytesRead.addAndGet(count);
+                int length = carried + count;
+                if (matches(buffer, length)) {
+                    return true;
+                }
+                carried = Math.min(OVERLAP, length);
+                System.arraycopy(buffer, length - carried, buffer, 0, carried);
+            }
+        }
+        return false;
+    }
+
+    private static boolean matches(byte[] buffer, int length) {
+        for (int i = 0; i < length; i++) {
+            if (buffer[i] != '!') {
+                continue;
+            }
+            for (byte[] marker : MARKERS) {
+                if (matches(buffer, length, i, marker)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean matches(byte[] buffer, int length, int offset, byte[] marker) {
+        if (offset + marker.length > length) {
+            return false;
+        }
+        for (int j = 1; j < marker.length; j++) {
+            byte b = buffer[offset + j];
+            if (b >= 'A' && b <= 'Z') {
+                b = (byte) (b + ('a' - 'A'));
+            }
+            if (b != marker[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of bytes read by this detector since its creation.
+     */
+    public long getBytesRead() {
+        return bytesRead.get();
+    }
+
+    /**
+     * Forgets the cached result of the given file.
+     *
+     * @param file the file
+     */
+    public void invalidate(File file) {
+        cache.remove(file.getAbsolutePath());
+    }
+
+    private static class Entry {
+        private final long length;
+        private final long lastModified;
+        private final boolean result;
+
+        private Entry(long length, long lastModified, boolean result) {
+            this.length = length;
+            this.lastModified = lastModified;
+            this.result = result;
+        }
+    }
+}
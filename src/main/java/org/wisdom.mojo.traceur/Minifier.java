@@ -0,0 +1,167 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2014 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.mojo.traceur;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import com.google.javascript.jscomp.CompilationLevel;
+import com.google.javascript.jscomp.Compiler;
+import com.google.javascript.jscomp.CompilerOptions;
+import com.google.javascript.jscomp.Result;
+import com.google.javascript.jscomp.SourceFile;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.FilenameUtils;
+import org.apache.maven.plugin.MojoExecutionException;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * Minifies a compiled bundle with the Google Closure Compiler (simple optimizations), running in the Maven JVM. The
+ * minified bundle ({@code acme-min.js}) is written next to the bundle, with a source map ({@code acme-min.js.map})
+ * mapping it back to the bundle.
+ * <p>
+ * As the bundle is regular EcmaScript 5, it can be minified even though the Google Closure compilation of the
+ * Wisdom Maven plugin is disabled (it fails on the EcmaScript 6 sources). Results are cached by the hash of the
+ * bundle, so a bundle compiled again to the same content is not minified again. Minifiers are independent, so
+ * several bundles can be minified concurrently.
+ */
+public class Minifier {
+
+    /**
+     * The suffix added to the name of the minified bundles, as used by the Wisdom Maven plugin.
+     */
+    public static final String SUFFIX = "-min";
+
+    /**
+     * The extension of the source maps, added to the name of the minified bundle.
+     */
+    public static final String MAP_EXTENSION = ".map";
+
+    private static final int PREFIX_LENGTH = 8;
+
+    private final File cache;
+
+    /**
+     * Creates the minifier.
+     *
+     * @param cache the directory storing the minified bundles by the hash of their input
+     */
+    public Minifier(File cache) {
+        this.cache = cache;
+    }
+
+    /**
+     * Gets the minified version of the given bundle.
+     *
+     * @param bundle the bundle
+     * @return the minified file, located next to the bundle
+     */
+    public static File getMinifiedFile(File bundle) {
+        String name = bundle.getName();
+        String extension = FilenameUtils.getExtension(name);
+        return new File(bundle.getParentFile(), FilenameUtils.removeExtension(name) + SUFFIX
+                + (extension.isEmpty() ? "" : "." + extension));
+    }
+
+    /**
+     * Gets the source map of the given minified file.
+     *
+     * @param minified the minified file
+     * @return the source map, located next to the minified file
+     */
+    public static File getSourceMap(File minified) {
+        return new File(minified.getParentFile(), minified.getName() + MAP_EXTENSION);
+    }
+
+    /**
+     * Minifies the given bundle. The minified bundle and its source map are only rewritten when their content
+     * changes.
+     *
+     * @param bundle the compiled bundle
+     * @return the number of bytes written
+     * @throws MojoExecutionException if the bundle cannot be minified
+     * @throws IOException            if a file cannot be read or written
+     */
+    public long minify(File bundle) throws MojoExecutionException, IOException {
+        File minified = getMinifiedFile(bundle);
+        File map = getSourceMap(minified);
+        byte[] content = Files.toByteArray(bundle);
+
+        // Entries of the same bundle share a prefix, so the previous ones can be removed.
+        String prefix = Hashing.sha1().hashString(minified.getAbsolutePath(), Charsets.UTF_8).toString()
+                .substring(0, PREFIX_LENGTH);
+        String key = prefix + "-" + Hashing.sha1().newHasher()
+                .putString(bundle.getName(), Charsets.UTF_8).putByte((byte) 0)
+                .putBytes(content)
+                .hash().toString();
+        File cachedCode = new File(cache, key + TraceurMojo.INPUT_EXTENSION);
+        File cachedMap = getSourceMap(cachedCode);
+
+        byte[] code;
+        byte[] sourceMap;
+        if (cachedCode.isFile() && cachedMap.isFile()) {
+            code = Files.toByteArray(cachedCode);
+            sourceMap = Files.toByteArray(cachedMap);
+        } else {
+            StringBuilder json = new StringBuilder();
+            code = minify(bundle.getName(), new String(content, Charsets.UTF_8), minified.getName(), map.getName(),
+                    json).getBytes(Charsets.UTF_8);
+            sourceMap = json.toString().getBytes(Charsets.UTF_8);
+            removePreviousEntries(prefix);
+            BundlePublisher.writeIfChanged(cachedMap, sourceMap);
+            BundlePublisher.writeIfChanged(cachedCode, code);
+        }
+        return BundlePublisher.writeIfChanged(map, sourceMap) + BundlePublisher.writeIfChanged(minified, code);
+    }
+
+    private static String minify(String name, String source, String minified, String map, StringBuilder json)
+            throws MojoExecutionException, IOException {
+        CompilerOptions options = new CompilerOptions();
+        CompilationLevel.SIMPLE_OPTIMIZATIONS.setOptionsForCompilationLevel(options);
+        options.setLanguageIn(CompilerOptions.LanguageMode.ECMASCRIPT5);
+        // Enables the generation of the source map, written by the caller.
+        options.setSourceMapOutputPath(map);
+
+        Compiler compiler = new Compiler();
+        Result result = compiler.compile(Collections.<SourceFile>emptyList(),
+                Collections.singletonList(SourceFile.fromCode(name, source)), options);
+        if (!result.success) {
+            throw new MojoExecutionException("Cannot minify " + name + " : " + Arrays.toString(result.errors));
+        }
+        result.sourceMap.appendTo(json, minified);
+        return compiler.toSource() + "\n//# sourceMappingURL=" + map + "\n";
+    }
+
+    private void removePreviousEntries(String prefix) {
+        File[] files = cache.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (file.getName().startsWith(prefix + "-")) {
+                FileUtils.deleteQuietly(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2014 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.mojo.traceur;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Kills a process and the processes it started.
+ * <p>
+ * The descendants of the process are only known on Java 9+ ({@code ProcessHandle}), which is used by reflection
+ * when available. On older JVMs, only the process itself is killed. The descendants are collected before the
+ * process is killed, as they are re-parented once it is dead.
+ */
+public final class ProcessTree {
+
+    /**
+     * The delay given to the processes to exit once asked to, before being killed forcibly.
+     */
+    private static final long GRACE_PERIOD = 500;
+
+    private ProcessTree() {
+        // Avoid direct instantiation.
+    }
+
+    /**
+     * Kills the given process and its descendants. The process is asked to exit, and killed forcibly if it is still
+     * alive after a short delay. This method does not wait for the descendants to exit.
+     *
+     * @param process the process, may be {@code null}
+     */
+    public static void destroy(Process process) {
+        if (process == null) {
+            return;
+        }
+        List<Object> descendants = getDescendants(process);
+        process.destroy();
+        for (Object descendant : descendants) {
+            invoke(descendant, "destroy");
+        }
+        if (isAlive(process)) {
+            try {
+                // Java 8+, waitFor(long, TimeUnit) and destroyForcibly().
+                Method waitFor = Process.class.getMethod("waitFor", long.class, TimeUnit.class);
+                if (!((Boolean) waitFor.invoke(process, GRACE_PERIOD, TimeUnit.MILLISECONDS))) {
+                    invoke(process, "destroyForcibly");
+                }
+            } catch (ReflectiveOperationException e) { //NOSONAR
+                // Java 7, destroy() is the best we can do.
+            }
+        }
+        for (Object descendant : descendants) {
+            if (Boolean.TRUE.equals(invoke(descendant, "isAlive"))) {
+                invoke(descendant, "destroyForcibly");
+            }
+        }
+    }
+
+    private static List<Object> getDescendants(Process process) {
+        List<Object> descendants = new ArrayList<>();
+        try {
+            Object stream = Process.class.getMethod("descendants").invoke(process);
+            Iterator<?> iterator = (Iterator<?>) Class.forName("java.util.stream.BaseStream").getMethod("iterator")
+                    .invoke(stream);
+            while (iterator.hasNext()) {
+                descendants.add(iterator.next());
+            }
+        } catch (ReflectiveOperationException | RuntimeException e) { //NOSONAR
+            // Not supported by this JVM, or by the process implementation.
+        }
+        return descendants;
+    }
+
+    private static Object invoke(Object target, String method) {
+        try {
+            // Looked up on the public types, as the implementations are not accessible.
+            Class<?> type = target instanceof Process ? Process.class : Class.forName("java.lang.ProcessHandle");
+            return type.getMethod(method).invoke(target);
+        } catch (ReflectiveOperationException | RuntimeException e) { //NOSONAR
+            return null;
+        }
+    }
+
+    private static boolean isAlive(Process process) {
+        try {
+            process.exitValue();
+            return false;
+        } catch (IllegalThreadStateException e) { //NOSONAR
+            return true;
+        }
+    }
+}
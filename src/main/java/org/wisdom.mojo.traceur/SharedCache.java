@@ -0,0 +1,250 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2014 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.mojo.traceur;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A compilation cache shared by all projects (and all Maven processes) of a machine, storing the compiled outputs
+ * by the hash of their inputs and compiler settings.
+ * <p>
+ * Unlike the {@link BuildCache}, keys do not depend on the location of the project: the inputs are identified by
+ * their content and their path relative to the project base directory. So the same sources compiled by several
+ * modules, or by several checkouts of the same project, are compiled only once.
+ * <p>
+ * Entries are written to a temporary file and then renamed, so concurrent readers never see a partial entry. The
+ * size of the cache is bounded: once the limit is exceeded, the least recently used entries (by last modification
+ * date, updated on every hit) are deleted. The eviction is done by a single process at a time.
+ */
+public class SharedCache {
+
+    private static final String TMP_EXTENSION = ".tmp";
+
+    /**
+     * Temporary files older than this delay are left by crashed processes, and can be deleted.
+     */
+    private static final long STALE_TMP_DELAY = TimeUnit.HOURS.toMillis(1);
+
+    private final File directory;
+    private final long maxSize;
+
+    /**
+     * Creates the cache.
+     *
+     * @param directory the cache directory, created if needed
+     * @param maxSize   the maximum size of the cache in bytes
+     */
+    public SharedCache(File directory, long maxSize) {
+        this.directory = directory;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Computes the key of a compilation. The output location is part of the key, as Traceur names the modules
+     * relative to the output directory.
+     *
+     * @param output   the output file
+     * @param inputs   the input files, in the order they are passed to the compiler, followed by the files they
+     *                 import, as they are inlined in the output
+     * @param base     the directory the paths are relative to (the project base directory)
+     * @param settings the compiler settings influencing the output
+     * @return the key
+     * @throws IOException if an input file cannot be read
+     */
+    public String key(File output, List<File> inputs, File base, String... settings) throws IOException {
+        Hasher hasher = Hashing.sha1().newHasher();
+        for (String setting : settings) {
+            hasher.putString(String.valueOf(setting), Charsets.UTF_8).putByte((byte) 0);
+        }
+        String root = base.getAbsolutePath() + File.separator;
+        hasher.putString(relativize(output, root), Charsets.UTF_8).putByte((byte) 0);
+        for (File input : inputs) {
+            hasher.putString(relativize(input, root), Charsets.UTF_8).putByte((byte) 0);
+            hasher.putBytes(Files.asByteSource(input).hash(Hashing.sha1()).asBytes());
+        }
+        return hasher.hash().toString();
+    }
+
+    private static String relativize(File file, String root) {
+        String path = file.getAbsolutePath();
+        if (path.startsWith(root)) {
+            path = path.substring(root.length());
+        }
+        return path.replace(File.separatorChar, '/');
+    }
+
+    /**
+     * Restores the output of a compilation from the cache.
+     *
+     * @param key    the key of the compilation
+     * @param output the output file, replaced atomically
+     * @return {@code true} if the cache contained the output, {@code false} otherwise
+     * @throws IOException if the output cannot be written
+     */
+    public boolean restore(String key, File output) throws IOException {
+        File entry = getEntry(key);
+        if (!entry.isFile()) {
+            return false;
+        }
+        FileUtils.forceMkdir(output.getParentFile());
+        File tmp = File.createTempFile(output.getName(), TMP_EXTENSION, output.getParentFile());
+        try {
+            FileUtils.copyFile(entry, tmp, false);
+            // Most recently used.
+            entry.setLastModified(System.currentTimeMillis());
+            move(tmp, output);
+            return true;
+        } catch (FileNotFoundException e) { //NOSONAR
+            // Evicted in the meantime.
+            return false;
+        } finally {
+            FileUtils.deleteQuietly(tmp);
+        }
+    }
+
+    /**
+     * Stores the output of a successful compilation, and evicts the least recently used entries if the cache is
+     * too big.
+     *
+     * @param key    the key of the compilation
+     * @param output the generated file
+     * @throws IOException if the entry cannot be written
+     */
+    public void store(String key, File output) throws IOException {
+        File entry = getEntry(key);
+        FileUtils.forceMkdir(entry.getParentFile());
+        File tmp = File.createTempFile(key, TMP_EXTENSION, entry.getParentFile());
+        try {
+            FileUtils.copyFile(output, tmp, false);
+            move(tmp, entry);
+        } finally {
+            FileUtils.deleteQuietly(tmp);
+        }
+        evict();
+    }
+
+    /**
+     * Deletes the least recently used entries until the size of the cache is below the limit. Nothing is done if
+     * another process or thread is already evicting entries.
+     *
+     * @throws IOException if the lock file cannot be created
+     */
+    public void evict() throws IOException {
+        FileUtils.forceMkdir(directory);
+        RandomAccessFile file = new RandomAccessFile(new File(directory, ".lock"), "rw");
+        try {
+            FileLock lock = file.getChannel().tryLock();
+            if (lock == null) {
+                return;
+            }
+            try {
+                evictUnderLock();
+            } finally {
+                lock.release();
+            }
+        } catch (OverlappingFileLockException e) { //NOSONAR
+            // Another thread of this JVM is evicting entries.
+        } finally {
+            IOUtils.closeQuietly(file);
+        }
+    }
+
+    private void evictUnderLock() {
+        List<File> entries = new ArrayList<>();
+        long size = 0;
+        long now = System.currentTimeMillis();
+        File[] buckets = directory.listFiles();
+        if (buckets == null) {
+            return;
+        }
+        for (File bucket : buckets) {
+            File[] files = bucket.listFiles();
+            if (files == null) {
+                continue;
+            }
+            for (File file : files) {
+                if (file.getName().endsWith(TMP_EXTENSION)) {
+                    if (now - file.lastModified() > STALE_TMP_DELAY) {
+                        FileUtils.deleteQuietly(file);
+                    }
+                } else {
+                    entries.add(file);
+                    size += file.length();
+                }
+            }
+        }
+        if (size <= maxSize) {
+            return;
+        }
+        // The dates are read once, as they may be updated by concurrent hits while sorting.
+        final List<long[]> dates = new ArrayList<>();
+        for (int i = 0; i < entries.size(); i++) {
+            dates.add(new long[]{entries.get(i).lastModified(), i});
+        }
+        Collections.sort(dates, new Comparator<long[]>() {
+            @Override
+            public int compare(long[] a, long[] b) {
+                return Long.compare(a[0], b[0]);
+            }
+        });
+        for (long[] date : dates) {
+            if (size <= maxSize) {
+                break;
+            }
+            File entry = entries.get((int) date[1]);
+            long length = entry.length();
+            if (entry.delete()) {
+                size -= length;
+            }
+        }
+    }
+
+    private static void move(File source, File destination) throws IOException {
+        try {
+            java.nio.file.Files.move(source.toPath(), destination.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) { //NOSONAR
+            java.nio.file.Files.move(source.toPath(), destination.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private File getEntry(String key) {
+        return new File(new File(directory, key.substring(0, 2)), key + TraceurMojo.INPUT_EXTENSION);
+    }
+}
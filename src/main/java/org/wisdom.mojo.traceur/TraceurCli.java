@@ -0,0 +1,153 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2014 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.mojo.traceur;
+
+import com.google.common.base.Charsets;
+import org.apache.commons.io.IOUtils;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs the Traceur command line in a new Node process.
+ * <p>
+ * Unlike {@link org.wisdom.maven.node.NPM#execute(String, String...)}, the error output is returned with the
+ * failure of each execution (as a {@link TraceurCompilationException}) instead of being stored in a shared field,
+ * so several compilations can run concurrently.
+ */
+public class TraceurCli {
+
+    /**
+     * The Traceur command line script, relative to the Traceur module directory.
+     */
+    public static final String SCRIPT = "traceur";
+
+    private final File node;
+    private final File traceur;
+    private final Log log;
+
+    /**
+     * Creates the command line runner.
+     *
+     * @param node    the Node executable
+     * @param traceur the directory of the Traceur module
+     * @param log     the logger
+     */
+    public TraceurCli(File node, File traceur, Log log) {
+        this.node = node;
+        this.traceur = traceur;
+        this.log = log;
+    }
+
+    /**
+     * Compiles the given input files into the output file.
+     *
+     * @param output       the output file
+     * @param inputs       the input files
+     * @param experimental whether the experimental features are enabled
+     * @param modules      the module strategy
+     * @throws MojoExecutionException if the compilation failed, or if Node cannot be executed
+     */
+    public void compile(File output, List<File> inputs, boolean experimental, String modules)
+            throws MojoExecutionException {
+        List<String> command = new ArrayList<>();
+        command.add(node.getAbsolutePath());
+        command.add(new File(traceur, SCRIPT).getAbsolutePath());
+        command.add("--out");
+        command.add(output.getAbsolutePath());
+        for (File input : inputs) {
+            command.add(input.getAbsolutePath());
+        }
+        if (experimental) {
+            command.add("--experimental");
+        }
+        command.add("--modules=" + modules);
+
+        log.debug("Executing " + command);
+        int exit;
+        final StringBuilder errors = new StringBuilder();
+        Process process = null;
+        try {
+            process = new ProcessBuilder(command).start();
+            final InputStream stdout = process.getInputStream();
+            final InputStream stderr = process.getErrorStream();
+            // Both streams are read in other threads: it avoids blocking the process when one of the pipes is full,
+            // and the current thread only waits in waitFor(), which can be interrupted when the compilation is
+            // cancelled (a read cannot, and a hung process keeps its streams open).
+            Thread out = new Thread("traceur-stdout") {
+                @Override
+                public void run() {
+                    try {
+                        consume(stdout);
+                    } catch (IOException e) { //NOSONAR
+                        // Process killed.
+                    }
+                }
+            };
+            Thread pump = new Thread("traceur-stderr") {
+                @Override
+                public void run() {
+                    try {
+                        errors.append(IOUtils.toString(stderr, Charsets.UTF_8.name()));
+                    } catch (IOException e) { //NOSONAR
+                        // Process killed.
+                    }
+                }
+            };
+            out.setDaemon(true);
+            pump.setDaemon(true);
+            out.start();
+            pump.start();
+            exit = process.waitFor();
+            out.join();
+            pump.join();
+        } catch (IOException e) {
+            throw new MojoExecutionException("Cannot execute Traceur", e);
+        } catch (InterruptedException e) {
+            // The compilation has been cancelled (superseded or timed out), Node and its children are killed.
+            ProcessTree.destroy(process);
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Traceur execution interrupted", e);
+        }
+
+        if (exit != 0) {
+            String stream = errors.toString();
+            // The errors are parsed and logged by the caller.
+            log.debug(stream);
+            throw new TraceurCompilationException("Traceur compilation failed (exit code " + exit + ")", stream,
+                    null);
+        }
+    }
+
+    private void consume(InputStream stream) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(stream, Charsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            log.info(line);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2014 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.mojo.traceur;
+
+import org.apache.maven.plugin.MojoExecutionException;
+
+import java.util.List;
+
+/**
+ * Exception thrown when Traceur reports a compilation failure. It carries the error output of the compiler,
+ * formatted as the Traceur command line does (one {@code [ 'file:line:column: reason' ]} entry per line), so it
+ * can be parsed into {@link CompilationError}s.
+ */
+public class TraceurCompilationException extends MojoExecutionException {
+
+    private final String errorStream;
+
+    /**
+     * Creates the exception.
+     *
+     * @param message     the message
+     * @param errorStream the error output of the compiler, may be {@code null}
+     * @param cause       the cause, may be {@code null}
+     */
+    public TraceurCompilationException(String message, String errorStream, Throwable cause) {
+        super(message, cause);
+        this.errorStream = errorStream;
+    }
+
+    /**
+     * @return the error output of the compiler, {@code null} if not available.
+     */
+    public String getErrorStream() {
+        return errorStream;
+    }
+
+    /**
+     * @return all the errors parsed from the error output, in the order they have been reported. Empty if the
+     * output is not available, or does not contain any error entry.
+     */
+    public List<CompilationError> getErrors() {
+        return CompilationError.parse(errorStream);
+    }
+}
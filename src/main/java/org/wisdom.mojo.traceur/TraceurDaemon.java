@@ -0,0 +1,248 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2014 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.mojo.traceur;
+
+import com.google.common.base.Charsets;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Manages a long-lived Node process hosting the Traceur compiler. Compared to the regular execution, that
+ * starts a new Node process (and reloads Traceur) for every compilation, the daemon keeps the compiler warm,
+ * drastically reducing the latency of the compilations triggered in watch mode.
+ * <p>
+ * Requests are sent to the {@code traceur/daemon.js} driver over stdin, replies are read from stdout. The process
+ * is started on the first request, and restarted if it crashes. Compilation errors are reported as
+ * {@link TraceurCompilationException} with an error stream formatted as the Traceur command line does.
+ */
+public class TraceurDaemon implements Closeable {
+
+    /**
+     * The prefix of the lines belonging to the protocol.
+     */
+    private static final String PREFIX = "@@traceur:";
+
+    private final File node;
+    private final File traceur;
+    private final File workDirectory;
+    private final Log log;
+
+    private volatile Process process;
+    private Writer stdin;
+    private BufferedReader stdout;
+
+    /**
+     * The thread waiting for the reply of the daemon, if any.
+     */
+    private volatile Thread client;
+
+    private final AtomicInteger starts = new AtomicInteger();
+    private final AtomicInteger compilations = new AtomicInteger();
+
+    /**
+     * Creates the daemon. The Node process is not started until the first compilation.
+     *
+     * @param node          the Node executable
+     * @param traceur       the directory of the Traceur module
+     * @param workDirectory the directory receiving the driver script and the daemon log
+     * @param log           the logger
+     */
+    public TraceurDaemon(File node, File traceur, File workDirectory, Log log) {
+        this.node = node;
+        this.traceur = traceur;
+        this.workDirectory = workDirectory;
+        this.log = log;
+    }
+
+    /**
+     * Compiles the given input files into the output file. If the Node process has crashed, it is restarted and
+     * the request is sent again.
+     *
+     * @param output       the output file
+     * @param inputs       the input files
+     * @param experimental whether the experimental features are enabled
+     * @param modules      the module strategy
+     * @throws MojoExecutionException if the compilation failed, or if the daemon cannot be reached
+     */
+    public synchronized void compile(File output, List<File> inputs, boolean experimental, String modules)
+            throws MojoExecutionException {
+        StringBuilder request = new StringBuilder("compile\t")
+                .append(output.getAbsolutePath()).append('\t')
+                .append(modules).append('\t')
+                .append(experimental);
+        for (File input : inputs) {
+            request.append('\t').append(input.getAbsolutePath());
+        }
+
+        if (Thread.currentThread().isInterrupted()) {
+            // Cancelled while waiting for the previous compilation.
+            throw new MojoExecutionException("Traceur compilation cancelled");
+        }
+        client = Thread.currentThread();
+        try {
+            send(request.toString());
+        } catch (IOException e) {
+            if (Thread.currentThread().isInterrupted()) {
+                stop();
+                throw new MojoExecutionException("Traceur compilation cancelled", e);
+            }
+            log.warn("The Traceur daemon is not responding (" + e.getMessage() + "), restarting it");
+            stop();
+            try {
+                send(request.toString());
+            } catch (IOException e2) {
+                stop();
+                throw new MojoExecutionException("Cannot communicate with the Traceur daemon", e2);
+            }
+        } finally {
+            client = null;
+        }
+    }
+
+    /**
+     * Aborts the compilation done by the given thread, if any, by killing the Node process: blocking reads are
+     * not interruptible. The process is restarted by the next compilation.
+     *
+     * @param thread the thread whose compilation is cancelled
+     */
+    public void abort(Thread thread) {
+        Process current = process;
+        if (current != null && client == thread) {
+            log.info("Stopping the Traceur daemon to cancel the running compilation");
+            ProcessTree.destroy(current);
+        }
+    }
+
+    private void send(String request) throws IOException, MojoExecutionException {
+        if (!isAlive()) {
+            start();
+        }
+        stdin.write(request);
+        stdin.write('\n');
+        stdin.flush();
+
+        List<String> errors = new ArrayList<>();
+        String line;
+        while ((line = stdout.readLine()) != null) {
+            if (!line.startsWith(PREFIX)) {
+                log.debug("[traceur] " + line);
+                continue;
+            }
+            String[] segments = line.substring(PREFIX.length()).split("\t", 2);
+            if ("error".equals(segments[0]) && segments.length == 2) {
+                errors.add(segments[1]);
+            } else if ("done".equals(segments[0])) {
+                compilations.incrementAndGet();
+                if (segments.length == 2 && "ok".equals(segments[1])) {
+                    return;
+                }
+                StringBuilder stream = new StringBuilder();
+                for (String error : errors) {
+                    stream.append("[ '").append(error).append("' ]\n");
+                }
+                throw new TraceurCompilationException("Traceur compilation failed", stream.toString(), null);
+            }
+        }
+        throw new IOException("Unexpected end of the Traceur daemon output");
+    }
+
+    private void start() throws IOException {
+        File script = new File(workDirectory, "daemon.js");
+        try (InputStream stream = TraceurDaemon.class.getClassLoader().getResourceAsStream("traceur/daemon.js")) {
+            FileUtils.copyInputStreamToFile(stream, script);
+        }
+        ProcessBuilder builder = new ProcessBuilder(node.getAbsolutePath(), script.getAbsolutePath(),
+                traceur.getAbsolutePath());
+        builder.redirectError(ProcessBuilder.Redirect.appendTo(new File(workDirectory, "daemon.log")));
+        log.info("Starting the Traceur daemon");
+        process = builder.start();
+        starts.incrementAndGet();
+        stdin = new OutputStreamWriter(process.getOutputStream(), Charsets.UTF_8);
+        stdout = new BufferedReader(new InputStreamReader(process.getInputStream(), Charsets.UTF_8));
+    }
+
+    /**
+     * Checks whether the Node process is running.
+     *
+     * @return {@code true} if the process has been started, and has neither been stopped nor exited
+     */
+    public boolean isAlive() {
+        Process current = process;
+        if (current == null) {
+            return false;
+        }
+        try {
+            current.exitValue();
+            return false;
+        } catch (IllegalThreadStateException e) { //NOSONAR
+            // Still running.
+            return true;
+        }
+    }
+
+    private void stop() {
+        if (process != null) {
+            IOUtils.closeQuietly(stdin);
+            IOUtils.closeQuietly(stdout);
+            ProcessTree.destroy(process);
+            process = null;
+        }
+    }
+
+    /**
+     * Gets the number of Node processes started by this daemon, including the restarts.
+     *
+     * @return the number of started processes
+     */
+    public int getStartCount() {
+        return starts.get();
+    }
+
+    /**
+     * Gets the number of compilations completed by this daemon, successfully or not.
+     *
+     * @return the number of compilations
+     */
+    public int getCompilationCount() {
+        return compilations.get();
+    }
+
+    /**
+     * Stops the Node process, if running.
+     */
+    @Override
+    public synchronized void close() {
+        stop();
+    }
+}
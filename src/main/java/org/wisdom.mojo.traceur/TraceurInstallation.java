@@ -0,0 +1,301 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2014 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.mojo.traceur;
+
+import com.google.common.base.Charsets;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Tracks the Traceur installations, so the installation is checked (and done) only once per version.
+ * <p>
+ * A stamp file ({@code .wisdom-traceur-VERSION}) is written in the Node modules directory once Traceur has been
+ * installed. Later executions only check the stamp and the Traceur script. Within a JVM (and so within a reactor
+ * build, as all modules share the plugin class loader), the result of the check is kept in memory.
+ * <p>
+ * Traceur can also be installed from a local directory or tarball, without accessing the network.
+ * <p>
+ * As the Node modules directory is shared by all projects, installations must be done while holding the
+ * {@link #lock(File)} of the directory, so concurrent builds (threads of a parallel build, or other Maven
+ * processes) never install Traceur at the same time.
+ */
+public final class TraceurInstallation {
+
+    /**
+     * Extracts the version declared in a {@code package.json} file.
+     */
+    private static final Pattern VERSION = Pattern.compile("\"version\"\\s*:\\s*\"([^\"]+)\"");
+
+    /**
+     * The executable bit of the owner in the mode of tar entries.
+     */
+    private static final int EXECUTABLE = 0100;
+
+    private static final Set<String> INSTALLED = Collections.newSetFromMap(
+            new ConcurrentHashMap<String, Boolean>());
+
+    private TraceurInstallation() {
+        // Avoid direct instantiation.
+    }
+
+    /**
+     * Gets the stamp file of the given version.
+     *
+     * @param modules the Node modules directory
+     * @param version the Traceur version
+     * @return the stamp file, may not exist
+     */
+    public static File getStamp(File modules, String version) {
+        return new File(modules, ".wisdom-traceur-" + version);
+    }
+
+    /**
+     * Checks whether the given version of Traceur is installed.
+     *
+     * @param modules the Node modules directory
+     * @param version the Traceur version
+     * @return {@code true} if the installation has been checked in this JVM, or if the stamp and the Traceur
+     * script exist
+     */
+    public static boolean isInstalled(File modules, String version) {
+        String key = key(modules, version);
+        if (INSTALLED.contains(key)) {
+            return true;
+        }
+        if (getStamp(modules, version).isFile()
+                && new File(new File(modules, TraceurMojo.NPM_NAME), TraceurCli.SCRIPT).isFile()) {
+            INSTALLED.add(key);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Records a successful installation.
+     *
+     * @param modules the Node modules directory
+     * @param version the Traceur version
+     * @throws IOException if the stamp cannot be written
+     */
+    public static void installed(File modules, String version) throws IOException {
+        // Only one version is installed at a time.
+        File[] stamps = modules.listFiles();
+        if (stamps != null) {
+            for (File stamp : stamps) {
+                if (stamp.getName().startsWith(".wisdom-traceur-")) {
+                    FileUtils.deleteQuietly(stamp);
+                }
+            }
+        }
+        String prefix = key(modules, "");
+        for (String key : INSTALLED) {
+            if (key.startsWith(prefix)) {
+                INSTALLED.remove(key);
+            }
+        }
+        FileUtils.writeStringToFile(getStamp(modules, version), version, Charsets.UTF_8);
+        INSTALLED.add(key(modules, version));
+    }
+
+    /**
+     * Installs Traceur from a local directory (an installed Traceur module, including its dependencies) or a
+     * {@code .tgz} / {@code .tar.gz} tarball of such a directory. The module is first copied (or extracted) next to
+     * the installed one, and replaces it only if it contains the Traceur script and if the version declared in its
+     * {@code package.json} is the expected one.
+     *
+     * @param source  the directory or tarball
+     * @param modules the Node modules directory
+     * @param version the expected Traceur version
+     * @param log     the logger
+     * @throws MojoExecutionException if the installation failed, or if the module is not the expected version
+     */
+    public static void installFrom(File source, File modules, String version, Log log)
+            throws MojoExecutionException {
+        File destination = new File(modules, TraceurMojo.NPM_NAME);
+        if (!source.exists()) {
+            throw new MojoExecutionException("Cannot install Traceur from " + source.getAbsolutePath()
+                    + ": the file does not exist");
+        }
+        log.info("Installing Traceur from " + source.getAbsolutePath());
+        File staging = null;
+        try {
+            FileUtils.forceMkdir(modules);
+            staging = Files.createTempDirectory(modules.toPath(), ".traceur-").toFile();
+            if (source.isDirectory()) {
+                FileUtils.copyDirectory(source, staging);
+            } else {
+                extract(source, staging);
+            }
+            if (!new File(staging, TraceurCli.SCRIPT).isFile()) {
+                throw new MojoExecutionException(source.getAbsolutePath() + " does not contain a Traceur module");
+            }
+            String found = getVersion(staging);
+            if (!version.equals(found)) {
+                throw new MojoExecutionException(source.getAbsolutePath() + " contains Traceur "
+                        + (found == null ? "without version" : found) + ", but the version " + version
+                        + " is configured");
+            }
+            FileUtils.deleteDirectory(destination);
+            FileUtils.moveDirectory(staging, destination);
+        } catch (IOException e) {
+            throw new MojoExecutionException("Cannot install Traceur from " + source.getAbsolutePath(), e);
+        } finally {
+            FileUtils.deleteQuietly(staging);
+        }
+    }
+
+    /**
+     * Reads the version of the given module from its {@code package.json}.
+     *
+     * @param module the module directory
+     * @return the version, {@code null} if the module has no {@code package.json}, or if it does not declare a
+     * version
+     * @throws IOException if the {@code package.json} file cannot be read
+     */
+    public static String getVersion(File module) throws IOException {
+        File descriptor = new File(module, "package.json");
+        if (!descriptor.isFile()) {
+            return null;
+        }
+        Matcher matcher = VERSION.matcher(FileUtils.readFileToString(descriptor, Charsets.UTF_8));
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    /**
+     * Extracts a gzipped tarball. The first segment of the entries is either 'package' (npm pack) or the module
+     * directory, and is stripped. Links are ignored, NPM packages do not contain any.
+     */
+    private static void extract(File tarball, File destination) throws IOException {
+        Path root = destination.getCanonicalFile().toPath();
+        try (TarArchiveInputStream in = new TarArchiveInputStream(new GZIPInputStream(
+                new FileInputStream(tarball)))) {
+            TarArchiveEntry entry;
+            while ((entry = in.getNextTarEntry()) != null) {
+                String name = entry.getName().replace('\\', '/');
+                int slash = name.indexOf('/');
+                if (slash < 0 || slash == name.length() - 1) {
+                    continue;
+                }
+                Path path = root.resolve(name.substring(slash + 1)).normalize();
+                if (!path.startsWith(root)) {
+                    throw new IOException("Invalid entry " + entry.getName() + " in " + tarball.getAbsolutePath());
+                }
+                File file = path.toFile();
+                if (entry.isDirectory()) {
+                    FileUtils.forceMkdir(file);
+                } else if (entry.isFile()) {
+                    FileUtils.forceMkdir(file.getParentFile());
+                    try (OutputStream out = new FileOutputStream(file)) {
+                        IOUtils.copy(in, out);
+                    }
+                    if ((entry.getMode() & EXECUTABLE) != 0) {
+                        file.setExecutable(true);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Acquires the installation lock of the given Node modules directory. The lock is held by a file lock, so it
+     * excludes the other processes, and by a monitor, as file locks cannot be acquired twice by the same JVM. This
+     * method blocks until the lock is acquired.
+     *
+     * @param modules the Node modules directory
+     * @return the lock, to be closed to release it
+     * @throws IOException if the lock file cannot be created or locked
+     */
+    public static Closeable lock(File modules) throws IOException {
+        FileUtils.forceMkdir(modules);
+        return new InstallationLock(new File(modules, ".wisdom-traceur.lock"));
+    }
+
+    private static String key(File modules, String version) {
+        return modules.getAbsolutePath() + "@" + version;
+    }
+
+    /**
+     * The installation lock, see {@link #lock(File)}.
+     */
+    private static final class InstallationLock implements Closeable {
+
+        /**
+         * File locks are held on behalf of the whole JVM, so the threads of this JVM are excluded by this lock.
+         */
+        private static final ReentrantLock MONITOR = new ReentrantLock();
+
+        private final RandomAccessFile file;
+        private final FileLock lock;
+
+        private InstallationLock(File file) throws IOException {
+            try {
+                MONITOR.lockInterruptibly();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for the Traceur installation lock", e);
+            }
+            RandomAccessFile raf = null;
+            FileLock fileLock = null;
+            try {
+                raf = new RandomAccessFile(file, "rw");
+                fileLock = raf.getChannel().lock();
+            } finally {
+                if (fileLock == null) {
+                    IOUtils.closeQuietly(raf);
+                    MONITOR.unlock();
+                }
+            }
+            this.file = raf;
+            this.lock = fileLock;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                lock.release();
+            } finally {
+                IOUtils.closeQuietly(file);
+                MONITOR.unlock();
+            }
+        }
+    }
+}
@@ -19,10 +19,11 @@
  */
 package org.wisdom.mojo.traceur;
 
+import com.google.common.base.Charsets;
 import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableList;
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.filefilter.WildcardFileFilter;
+import org.apache.commons.io.FileUtils;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
@@ -32,14 +33,31 @@ import org.wisdom.maven.Constants;
 import org.wisdom.maven.WatchingException;
 import org.wisdom.maven.mojos.AbstractWisdomWatcherMojo;
 import org.wisdom.maven.node.NPM;
-import org.wisdom.maven.utils.WatcherUtils;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.regex.Matcher;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.regex.Pattern;
 
 
@@ -56,8 +74,12 @@ import java.util.regex.Pattern;
  * <p>
  * Are automatically compiled the file containing a comment with {@code !es6} or {@code !ecmascript6},
  * and the file matching one of the {@code includes} patterns.
+ * <p>
+ * The mojo is thread safe: the state of an execution is kept by the mojo instance (one per execution), the
+ * compilation outputs and caches are located in the build directory of the project, and the installation of
+ * Traceur in the shared Node modules directory is done under a lock.
  */
-@Mojo(name = "compile-es6", threadSafe = false,
+@Mojo(name = "compile-es6", threadSafe = true,
         requiresDependencyResolution = ResolutionScope.COMPILE,
         requiresProject = true,
         defaultPhase = LifecyclePhase.COMPILE)
@@ -74,10 +96,11 @@ public class TraceurMojo extends AbstractWisdomWatcherMojo implements Constants
     public static final String NPM_NAME = "traceur";
 
     /**
-     * Regexp pattern to display Traceur compilation errors in a clean manner.
+     * Regexp pattern to display Traceur compilation errors in a clean manner. It matches each entry of the array of
+     * errors printed by Traceur, the first one starting with {@code [}.
      */
     public static final Pattern TRACEUR_COMPILATION_ERROR = Pattern.compile(
-            "\\[ '(.*):([0-9]*):([0-9]*): (.*)'.*");
+            "(?:\\[\\s*)?'(.*):([0-9]*):([0-9]*): (.*)'.*");
     public static final String ERROR_TITLE = "EcmaScript 6 Compilation Error";
 
     /**
@@ -99,7 +122,8 @@ public class TraceurMojo extends AbstractWisdomWatcherMojo implements Constants
     protected String moduleStrategy;
 
     /**
-     * Configures the output files. All EcmaScript files are compiled to an unique file: this one.
+     * Configures the output files. All EcmaScript files are compiled to an unique file: this one. Ignored when
+     * {@link #bundles} are defined.
      */
     @Parameter(defaultValue = "${project.artifactId}.js")
     protected String output;
@@ -113,9 +137,218 @@ public class TraceurMojo extends AbstractWisdomWatcherMojo implements Constants
     protected String[] includes;
 
     /**
-     * The NPM object.
+     * The output bundles. By default, all the eligible files of an asset directory are compiled into a single file
+     * ({@link #output}). When bundles are defined, each bundle is compiled to its own output file, from the files
+     * matching its {@code includes}, and with its own {@code moduleStrategy}. Bundles are compiled concurrently,
+     * and in watch mode, only the bundles containing the changed file are recompiled. See {@link Bundle}.
+     */
+    @Parameter
+    protected List<Bundle> bundles;
+
+    /**
+     * The set of excludes (glob patterns matched against the path relative to the asset directory, such as
+     * {@code libs/**} or {@code **}{@code /node_modules/**}). Excluded files are never read nor compiled, and
+     * excluded directories are not walked at all, so vendored trees do not slow down the build.
+     */
+    @Parameter
+    protected String[] excludes;
+
+    /**
+     * Enables the offline installation of Traceur: a directory containing an installed Traceur module (including
+     * its {@code node_modules}), or a {@code .tgz} tarball of such a directory. When set, Traceur is installed from
+     * this location instead of being downloaded by NPM. The {@code version} parameter must match the version of
+     * the provided module (declared in its {@code package.json}), the installation fails otherwise.
+     */
+    @Parameter(property = "traceur.package")
+    protected File traceurPackage;
+
+    /**
+     * Enables or disables the build cache. When enabled, the fingerprint (contents of the compiled files and of the
+     * files they import, and compiler settings) of each successful compilation is stored in
+     * {@code target/traceur/build-cache}, and the compilation is skipped when nothing has changed since the last
+     * build and the output file still exists.
+     */
+    @Parameter(defaultValue = "true")
+    protected boolean buildCache = true;
+
+    /**
+     * Enables or disables the content-hashed copies of the output files (disabled by default). When enabled, a copy
+     * of each output file named after the hash of its content (such as {@code acme-1a2b3c4d5e6f.js}) is written next
+     * to it, and the mapping from the output name to the hashed name is recorded in {@code traceur-manifest.json}.
+     * As the name changes with the content, these copies can be cached forever by browsers and CDNs.
+     */
+    @Parameter(defaultValue = "false")
+    protected boolean hashedOutput;
+
+    /**
+     * Enables or disables the gzip-compressed copies ({@code .gz}) of the output files, and of their content-hashed
+     * copies (disabled by default), so they can be served without being compressed on every request.
+     */
+    @Parameter(defaultValue = "false")
+    protected boolean precompress;
+
+    /**
+     * Enables or disables the publication of the Traceur runtime as a separate asset (disabled by default). When
+     * enabled, the runtime of the configured Traceur version is written once in the internal asset output directory
+     * as {@code traceur-runtime-VERSION.js} (and its {@code .gz} copy if {@link #precompress} is enabled), and
+     * recorded as {@code traceur-runtime.js} in {@code traceur-manifest.json}. Pages load it once, before the
+     * compiled bundles, and as its name changes with the version, it can be cached forever.
+     */
+    @Parameter(defaultValue = "false")
+    protected boolean runtime;
+
+    /**
+     * Enables or disables the minification of the output files (disabled by default). When enabled, each output
+     * file is minified with the Google Closure Compiler inside the Maven JVM, to a sibling file suffixed with
+     * {@code -min} (such as {@code acme-min.js}) and its source map ({@code acme-min.js.map}). Minified files are
+     * cached by the hash of the output file in {@code target/traceur/minified}.
+     */
+    @Parameter(defaultValue = "false")
+    protected boolean minify;
+
+    /**
+     * Enables or disables the shared compilation cache (disabled by default). When enabled, compiled outputs are
+     * stored in {@link #sharedCacheDirectory}, keyed by the content of the inputs (and their path relative to the
+     * project) and the compiler settings. Any project, or Maven process, compiling the same sources with the same
+     * settings reuses the stored output instead of running Traceur.
+     */
+    @Parameter(property = "traceur.sharedCache", defaultValue = "false")
+    protected boolean sharedCache;
+
+    /**
+     * The directory of the shared compilation cache.
+     */
+    @Parameter(property = "traceur.sharedCacheDirectory",
+            defaultValue = "${settings.localRepository}/.cache/wisdom-traceur")
+    protected File sharedCacheDirectory;
+
+    /**
+     * The maximum size of the shared compilation cache, in megabytes. The least recently used entries are evicted
+     * when the cache grows beyond this size.
+     */
+    @Parameter(property = "traceur.sharedCacheSize", defaultValue = "256")
+    protected int sharedCacheSize = 256;
+
+    /**
+     * Enables or disables the daemon mode. In watch mode, when enabled, a single Node process hosting Traceur is
+     * started on the first file event and kept alive for the whole session. Compilations are sent to this process
+     * instead of starting a new Node process for every change.
+     */
+    @Parameter(defaultValue = "false")
+    protected boolean daemon;
+
+    /**
+     * Enables or disables the batched mode (disabled by default). When enabled, all the outputs of a compilation
+     * run (the internal and external asset directories, every bundle, every fragment in incremental mode) are
+     * compiled by a single Node process, started on the first target and stopped at the end of the run, instead of
+     * one Node process per output. Each target gets its own result and errors. Ignored when the daemon is running.
+     */
+    @Parameter(property = "traceur.batch", defaultValue = "false")
+    protected boolean batch;
+
+    /**
+     * Enables or disables the incremental mode. When enabled, each file is compiled to its own fragment (stored in
+     * {@code target/traceur/fragments}), and the output file is the concatenation of these fragments. Only the
+     * fragments of the modified files are recompiled. As each file is compiled separately, it is recommended to use
+     * a module strategy registering the modules by name (such as {@code register} or {@code instantiate}): with
+     * the {@code inline} strategy, imported modules are inlined in the fragment of every importing file.
+     */
+    @Parameter(defaultValue = "false")
+    protected boolean incremental;
+
+    /**
+     * Limits the search of the {@code !es6} and {@code !ecmascript6} markers to the first kilobytes of each file.
+     * By default ({@code 0}), the whole file is scanned.
+     */
+    @Parameter(defaultValue = "0")
+    protected int markerScanLimit;
+
+    /**
+     * The number of threads used to compile the internal and external asset directories. With the default value
+     * ({@code 2}), both directories are scanned and compiled concurrently.
+     */
+    @Parameter(defaultValue = "2")
+    protected int threads = 2;
+
+    /**
+     * The quiet period (in milliseconds) used to coalesce the file events in watch mode. When greater than
+     * {@code 0}, events are collected until no change happened during this period, and then a single compilation
+     * is run for the whole burst. A compilation in progress is cancelled when a newer change arrives. Compilation
+     * errors are then reported in the log. By default ({@code 0}), every event triggers a compilation.
+     */
+    @Parameter(defaultValue = "0")
+    protected long quietPeriod;
+
+    /**
+     * The maximum duration of a compilation run (scanning and compiling all the outputs), in milliseconds. When
+     * exceeded, the compilation fails, and the Traceur process (and its children) is killed. By default
+     * ({@code 0}), compilations are not limited.
+     */
+    @Parameter(property = "traceur.timeout", defaultValue = "0")
+    protected long timeout;
+
+    /**
+     * The build cache, lazily created.
+     */
+    private BuildCache cache;
+
+    /**
+     * The shared compilation cache, lazily created.
+     */
+    private SharedCache shared;
+
+    /**
+     * The Traceur daemon, only set in watch mode when the daemon mode is enabled. Read by the compilation threads.
      */
-    protected NPM npm;
+    private volatile TraceurDaemon traceurDaemon;
+
+    /**
+     * The Node process compiling all the targets of the current compilation run, only set in batched mode.
+     */
+    private volatile TraceurDaemon batchProcess;
+
+    /**
+     * The marker detector, caching the result for each file.
+     */
+    private MarkerDetector markers;
+
+    /**
+     * The executor running the compilations, lazily created.
+     */
+    private ExecutorService executor;
+
+    /**
+     * The scheduler coalescing the file events, only created when a quiet period is configured.
+     */
+    private CompilationScheduler scheduler;
+
+    /**
+     * The index of the imports between the EcmaScript files, lazily created.
+     */
+    private DependencyIndex dependencies;
+
+    /**
+     * The source files of each output file, as of its last compilation. Used to find the bundles affected by a
+     * change.
+     */
+    private final ConcurrentMap<File, Set<File>> bundleSources = new ConcurrentHashMap<>();
+
+    /**
+     * The index of the filtered versions of each asset directory, by asset directory. Built once per execution, and
+     * refreshed from the file events in watch mode.
+     */
+    private final ConcurrentMap<File, FilteredResourceIndex> filteredResources = new ConcurrentHashMap<>();
+
+    /**
+     * The running compilation of each output file. A compilation is cancelled when a newer compilation of the same
+     * output is submitted.
+     */
+    private final ConcurrentMap<File, CancellableTask> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * The durations of the last compilations triggered in watch mode.
+     */
+    private final CompilationMetrics.History history = new CompilationMetrics.History(100);
 
     /**
      * Compiles all EcmaScripts(JavaScripts) files located in the internal and external asset
@@ -128,63 +361,752 @@ public class TraceurMojo extends AbstractWisdomWatcherMojo implements Constants
     public void execute()
             throws MojoExecutionException {
 
-        npm = NPM.npm(this, NPM_NAME, version);
+        // The output directories may have been changed by other goals since the last execution.
+        filteredResources.clear();
+
+        CompilationMetrics metrics = new CompilationMetrics();
+        CompilationMetrics.Measure install = metrics.start(CompilationMetrics.Phase.INSTALL);
+        install();
+        install.stop();
+
+        try {
+            if (runtime) {
+                publishRuntime(metrics);
+            }
+            compile(metrics);
+        } catch (MojoExecutionException e) {
+            logErrors(e);
+            throw e;
+        } finally {
+            report(metrics, false);
+        }
+    }
+
+    /**
+     * Ensures Traceur is installed. Once installed, a stamp is written in the Node modules directory, and later
+     * executions only check this stamp. In offline mode ({@link #traceurPackage} set), Traceur is installed from
+     * the given directory or tarball instead of using NPM.
+     *
+     * @throws MojoExecutionException if Traceur cannot be installed
+     */
+    private void install() throws MojoExecutionException {
+        File modules = getNodeManager().getNodeModulesDirectory();
+        if (TraceurInstallation.isInstalled(modules, version)) {
+            return;
+        }
+        // Another thread or process may be installing Traceur, in which case the stamp is checked again once done.
+        try (Closeable ignored = TraceurInstallation.lock(modules)) {
+            if (TraceurInstallation.isInstalled(modules, version)) {
+                return;
+            }
+            if (traceurPackage != null) {
+                TraceurInstallation.installFrom(traceurPackage, modules, version, getLog());
+            } else {
+                NPM.npm(this, NPM_NAME, version);
+            }
+            try {
+                TraceurInstallation.installed(modules, version);
+            } catch (IOException e) {
+                getLog().warn("Cannot write the Traceur installation stamp", e);
+            }
+        } catch (IOException e) {
+            throw new MojoExecutionException("Cannot lock the Node modules directory " + modules.getAbsolutePath(),
+                    e);
+        }
+    }
 
-        compile();
+    /**
+     * Publishes the Traceur runtime in the internal asset output directory. Nothing is written if the runtime of the
+     * configured version is already there.
+     *
+     * @param metrics the metrics
+     * @throws MojoExecutionException if the runtime cannot be published
+     */
+    private void publishRuntime(CompilationMetrics metrics) throws MojoExecutionException {
+        CompilationMetrics.Measure write = metrics.start(CompilationMetrics.Phase.WRITE);
+        try {
+            metrics.written(TraceurRuntime.publish(new File(getNodeManager().getNodeModulesDirectory(), NPM_NAME),
+                    version, getInternalAssetOutputDirectory(), precompress));
+        } catch (IOException e) {
+            throw new MojoExecutionException("Cannot publish the Traceur runtime", e);
+        } finally {
+            write.stop();
+        }
     }
 
     /**
-     * Compiles all eligible files from the internal and external assets.
+     * Compiles all eligible files from the internal and external assets. Both directories are compiled
+     * concurrently (see {@link #threads}), and the failures of both are reported together.
      *
      * @throws MojoExecutionException if the compilation failed
      */
     public void compile() throws MojoExecutionException {
-        Collection<File> internals = WatcherUtils.getAllFilesFromDirectory
-                (getInternalAssetsDirectory(), ImmutableList.of("js"));
+        CompilationMetrics metrics = new CompilationMetrics();
+        try {
+            compile(metrics);
+        } catch (MojoExecutionException e) {
+            logErrors(e);
+            throw e;
+        } finally {
+            report(metrics, false);
+        }
+    }
 
-        Collection<File> externals = WatcherUtils.getAllFilesFromDirectory
-                (getExternalAssetsDirectory(), ImmutableList.of("js"));
+    private void compile(CompilationMetrics metrics) throws MojoExecutionException {
+        compile(metrics, null);
+    }
 
+    /**
+     * Compiles the bundles. Both asset directories are walked concurrently, and their files are distributed
+     * between the bundles. Then, the bundles are compiled concurrently. In batched mode, all the targets are sent
+     * to the same Node process, stopped once done.
+     *
+     * @param metrics the metrics
+     * @param changes the changed files, only the bundles containing one of these files (before or after the
+     *                change) are compiled. {@code null} to compile all bundles.
+     * @throws MojoExecutionException if the compilation failed
+     */
+    private void compile(CompilationMetrics metrics, Set<File> changes) throws MojoExecutionException {
+        // The timeout applies to the whole run, scans included.
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        TraceurDaemon batched = null;
+        if (batch && traceurDaemon == null) {
+            // Started on the first target.
+            batched = createTraceurDaemon();
+            batchProcess = batched;
+        }
         try {
-            compile(getInternalAssetOutputDirectory(), internals);
-            compile(getExternalAssetsOutputDirectory(), externals);
-        } catch (IOException e) {
-            throw new MojoExecutionException(e.getMessage(), e);
+            compileBundles(metrics, changes, deadline);
+        } finally {
+            if (batched != null) {
+                batchProcess = null;
+                batched.close();
+            }
         }
     }
 
-    private void compile(File dir, Collection<File> files) throws MojoExecutionException, IOException {
-        List<File> toCompile = new ArrayList<>();
-        for (File file : files) {
-            if (shouldBeCompiled(file)) {
-                File filtered = getFilteredVersion(file);
-                if (filtered != null) {
-                    toCompile.add(filtered);
-                } else {
-                    toCompile.add(file);
+    private void compileBundles(CompilationMetrics metrics, Set<File> changes, long deadline)
+            throws MojoExecutionException {
+        List<Bundle> bundles = getBundles();
+        long markerBytes = getMarkerDetector().getBytesRead();
+        List<AssetTreeScan> scans = ImmutableList.of(
+                new AssetTreeScan(getInternalAssetsDirectory(), getInternalAssetOutputDirectory(), bundles, metrics),
+                new AssetTreeScan(getExternalAssetsDirectory(), getExternalAssetsOutputDirectory(), bundles,
+                        metrics));
+        try {
+            await(scans, deadline);
+        } finally {
+            metrics.read(getMarkerDetector().getBytesRead() - markerBytes);
+        }
+
+        try {
+            compile(scans, bundles, changes, metrics, deadline);
+        } finally {
+            try {
+                getDependencyIndex().save();
+            } catch (IOException e) {
+                getLog().warn("Cannot write the EcmaScript dependency index", e);
+            }
+        }
+    }
+
+    private void compile(List<AssetTreeScan> scans, List<Bundle> bundles, Set<File> changes,
+                         final CompilationMetrics metrics, long deadline) throws MojoExecutionException {
+        List<Callable<Void>> compilations = new ArrayList<>();
+        for (AssetTreeScan scan : scans) {
+            for (final Bundle bundle : bundles) {
+                final File outputJS = new File(scan.destination, bundle.getOutput());
+                final List<File> toCompile = scan.selected.get(bundle);
+                List<File> sources = scan.sources.get(bundle);
+                Set<File> previous = bundleSources.put(outputJS, new HashSet<>(sources));
+                if (!isAffected(changes, previous, sources)) {
+                    getLog().debug(outputJS.getName() + " is not affected by " + changes);
+                    continue;
+                }
+                compilations.add(new OutputCompilation(outputJS) {
+                    @Override
+                    public Void call() throws MojoExecutionException, IOException {
+                        compile(outputJS, strategy(bundle), toCompile, metrics);
+                        return null;
+                    }
+                });
+            }
+        }
+        await(compilations, deadline);
+    }
+
+    /**
+     * Checks whether an output must be recompiled.
+     *
+     * @param changes  the changed files, {@code null} if unknown
+     * @param previous the sources of the output as of its last compilation, {@code null} if never compiled
+     * @param sources  the current sources of the output
+     * @return {@code true} if one of the changed files was a source of the output, or if one of the current
+     * sources is, or depends (directly or not) on, one of the changed files
+     */
+    private boolean isAffected(Set<File> changes, Set<File> previous, List<File> sources) {
+        if (changes == null || previous == null) {
+            return true;
+        }
+        for (File change : changes) {
+            if (previous.contains(change)) {
+                return true;
+            }
+        }
+        return getDependencyIndex().isAffected(sources, changes);
+    }
+
+    /**
+     * Gets the bundles to compile, either the configured ones, or a single bundle built from the global settings.
+     *
+     * @return the bundles
+     * @throws MojoExecutionException if the configuration is invalid
+     */
+    private List<Bundle> getBundles() throws MojoExecutionException {
+        if (bundles == null || bundles.isEmpty()) {
+            return ImmutableList.of(new Bundle(output, null, null));
+        }
+        Set<String> outputs = new HashSet<>();
+        for (Bundle bundle : bundles) {
+            if (Strings.isNullOrEmpty(bundle.getOutput())) {
+                throw new MojoExecutionException("Invalid bundle definition: the output is not set");
+            }
+            if (!outputs.add(bundle.getOutput())) {
+                throw new MojoExecutionException("Invalid bundle definitions: " + bundle.getOutput()
+                        + " is used by several bundles");
+            }
+        }
+        return bundles;
+    }
+
+    private String strategy(Bundle bundle) {
+        return bundle.getModuleStrategy() != null ? bundle.getModuleStrategy() : moduleStrategy;
+    }
+
+    /**
+     * Runs the given tasks concurrently, and waits for their completion. If several tasks fail, all the failures
+     * are reported together. The compilation of an output cancels the running compilation of the same output,
+     * whose result would be outdated. Tasks still running at the deadline are cancelled.
+     *
+     * @param tasks    the tasks
+     * @param deadline the deadline of the run ({@link System#nanoTime()}), ignored if {@link #timeout} is not set
+     * @throws MojoExecutionException if one of the tasks failed or timed out, or if the current thread is
+     *                                interrupted (the tasks are then cancelled)
+     */
+    private void await(List<? extends Callable<Void>> tasks, long deadline) throws MojoExecutionException {
+        List<CancellableTask> futures = new ArrayList<>();
+        for (Callable<Void> task : tasks) {
+            CancellableTask future = new CancellableTask(task);
+            if (future.output != null) {
+                CancellableTask previous = inFlight.put(future.output, future);
+                if (previous != null && previous.cancel(true)) {
+                    getLog().info("Cancelling the outdated compilation of " + future.output.getName());
+                }
+            }
+            getExecutor().execute(future);
+            futures.add(future);
+        }
+
+        // Wait for all tasks, and report all failures.
+        List<Throwable> failures = new ArrayList<>();
+        try {
+            for (CancellableTask future : futures) {
+                try {
+                    if (timeout > 0) {
+                        future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                    } else {
+                        future.get();
+                    }
+                } catch (ExecutionException e) {
+                    failures.add(e.getCause());
+                } catch (CancellationException e) { //NOSONAR
+                    // Superseded, the newer compilation reports the result.
+                    getLog().debug("EcmaScript compilation superseded by a newer one");
+                } catch (InterruptedException e) {
+                    cancel(futures);
+                    Thread.currentThread().interrupt();
+                    throw new MojoExecutionException("Interrupted while compiling EcmaScript files", e);
+                } catch (TimeoutException e) {
+                    cancel(futures);
+                    throw new MojoExecutionException("The EcmaScript compilation has not completed within "
+                            + timeout + " ms, Traceur has been stopped", e);
+                }
+            }
+        } finally {
+            for (CancellableTask future : futures) {
+                if (future.output != null) {
+                    inFlight.remove(future.output, future);
+                }
+            }
+        }
+        if (failures.isEmpty()) {
+            return;
+        }
+        if (failures.size() == 1 && failures.get(0) instanceof MojoExecutionException) {
+            throw (MojoExecutionException) failures.get(0);
+        }
+        StringBuilder message = new StringBuilder();
+        StringBuilder errors = new StringBuilder();
+        for (Throwable failure : failures) {
+            message.append(failure.getMessage()).append('\n');
+            if (failure instanceof TraceurCompilationException
+                    && ((TraceurCompilationException) failure).getErrorStream() != null) {
+                errors.append(((TraceurCompilationException) failure).getErrorStream()).append('\n');
+            }
+        }
+        MojoExecutionException exception;
+        if (errors.length() > 0) {
+            exception = new TraceurCompilationException(message.toString().trim(), errors.toString(),
+                    failures.get(0));
+        } else {
+            exception = new MojoExecutionException(message.toString().trim(), failures.get(0));
+        }
+        for (Throwable failure : failures.subList(1, failures.size())) {
+            exception.addSuppressed(failure);
+        }
+        throw exception;
+    }
+
+    private static void cancel(List<CancellableTask> futures) {
+        for (CancellableTask future : futures) {
+            future.cancel(true);
+        }
+    }
+
+    /**
+     * The compilation of an output file.
+     */
+    private abstract static class OutputCompilation implements Callable<Void> {
+        private final File output;
+
+        private OutputCompilation(File output) {
+            this.output = output;
+        }
+    }
+
+    /**
+     * A task that can be cancelled while Traceur is running. Interrupting the thread kills the Traceur process
+     * started by the command line runner, but not the daemon (or the batch process), as it blocks on a read: the
+     * daemon is then stopped.
+     */
+    private class CancellableTask extends FutureTask<Void> {
+        /**
+         * The output file compiled by the task, {@code null} if the task is not an output compilation.
+         */
+        private final File output;
+        private volatile Thread runner;
+
+        private CancellableTask(Callable<Void> task) {
+            super(task);
+            this.output = task instanceof OutputCompilation ? ((OutputCompilation) task).output : null;
+        }
+
+        @Override
+        public void run() {
+            runner = Thread.currentThread();
+            try {
+                super.run();
+            } finally {
+                runner = null;
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            TraceurDaemon instance = traceurDaemon != null ? traceurDaemon : batchProcess;
+            Thread thread = runner;
+            if (cancelled && instance != null && thread != null) {
+                instance.abort(thread);
+            }
+            return cancelled;
+        }
+    }
+
+    private synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            int size = Math.max(1, threads);
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(size, size, 30, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "traceur-compilation");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            // Do not keep idle threads between builds and watch events.
+            pool.allowCoreThreadTimeOut(true);
+            executor = pool;
+        }
+        return executor;
+    }
+
+    /**
+     * Walks an asset directory, and distributes the files between the bundles.
+     */
+    private class AssetTreeScan implements Callable<Void> {
+        private final File source;
+        private final File destination;
+        private final FilteredResourceIndex filtered;
+        private final List<Bundle> bundles;
+        private final CompilationMetrics metrics;
+
+        /**
+         * The files of each bundle, as found in the asset directory.
+         */
+        private final Map<Bundle, List<File>> sources = new HashMap<>();
+
+        /**
+         * The files to compile for each bundle (the filtered version of the sources if any).
+         */
+        private final Map<Bundle, List<File>> selected = new HashMap<>();
+
+        private AssetTreeScan(File source, File destination, List<Bundle> bundles, CompilationMetrics metrics) {
+            this.source = source;
+            this.destination = destination;
+            this.filtered = getFilteredResources(source, destination);
+            this.bundles = bundles;
+            this.metrics = metrics;
+            for (Bundle bundle : bundles) {
+                sources.put(bundle, new ArrayList<File>());
+                selected.put(bundle, new ArrayList<File>());
+            }
+        }
+
+        @Override
+        public Void call() throws IOException {
+            // Files are selected while walking, only the eligible ones are kept.
+            CompilationMetrics.Measure scan = metrics.start(CompilationMetrics.Phase.SCAN);
+            int count = new AssetWalker(source, INPUT_EXTENSION, excludes, getLog()).walk(new AssetWalker.Visitor() {
+                @Override
+                public void visit(File file) throws IOException {
+                    Boolean eligible = null;
+                    File selection = null;
+                    for (Bundle bundle : bundles) {
+                        boolean included;
+                        if (bundle.getIncludes() == null) {
+                            if (eligible == null) {
+                                eligible = isEligible(file, metrics);
+                            }
+                            included = eligible;
+                        } else {
+                            included = bundle.matches(source, file);
+                        }
+                        if (included) {
+                            if (selection == null) {
+                                selection = lookupFilteredVersion(file, filtered, metrics);
+                            }
+                            sources.get(bundle).add(file);
+                            selected.get(bundle).add(selection);
+                        }
+                    }
                 }
+            });
+            scan.stop();
+            metrics.scanned(count);
+            return null;
+        }
+    }
+
+    private boolean isEligible(File file, CompilationMetrics metrics) {
+        CompilationMetrics.Measure detection = metrics.start(CompilationMetrics.Phase.MARKER_DETECTION);
+        try {
+            return shouldBeCompiled(file);
+        } finally {
+            detection.stop();
+        }
+    }
+
+    /**
+     * @return the filtered version of the given file if any, the file itself otherwise
+     */
+    private File lookupFilteredVersion(File file, FilteredResourceIndex index, CompilationMetrics metrics)
+            throws IOException {
+        CompilationMetrics.Measure lookup = metrics.start(CompilationMetrics.Phase.FILTERED_LOOKUP);
+        File filtered;
+        try {
+            filtered = index.getFilteredVersion(file);
+        } finally {
+            lookup.stop();
+        }
+        return filtered != null ? filtered : file;
+    }
+
+    private FilteredResourceIndex getFilteredResources(File source, File destination) {
+        FilteredResourceIndex index = filteredResources.get(source);
+        if (index == null) {
+            FilteredResourceIndex created = new FilteredResourceIndex(source, destination, INPUT_EXTENSION);
+            index = filteredResources.putIfAbsent(source, created);
+            if (index == null) {
+                index = created;
             }
         }
+        return index;
+    }
 
+    /**
+     * Refreshes the filtered version of a changed file in the indexes, instead of walking the output directories
+     * again.
+     */
+    private void refreshFilteredVersion(File file) {
+        for (FilteredResourceIndex index : filteredResources.values()) {
+            index.refresh(file);
+        }
+    }
+
+    private void compile(File outputJS, String strategy, List<File> files, CompilationMetrics metrics)
+            throws MojoExecutionException, IOException {
+        // Dependencies first, so the output does not depend on the order of the directory listing.
+        List<File> toCompile = getDependencyIndex().sort(files);
         if (!toCompile.isEmpty()) {
-            File outputJS = new File(dir, this.output);
-            getLog().info("Compiling EcmaScript files : " + toCompile + " to " + outputJS
-                    .getAbsolutePath());
-            List<String> args = new ArrayList<String>();
-            args.add("--out");
-            args.add(outputJS.getAbsolutePath());
-            for (File file : toCompile) {
-                args.add(file.getAbsolutePath());
+            String fingerprint = null;
+            if (buildCache) {
+                fingerprint = getBuildCache().fingerprint(outputJS, withDependencies(toCompile), version,
+                        Boolean.toString(experimental), strategy, Boolean.toString(hashedOutput),
+                        Boolean.toString(precompress), Boolean.toString(minify), Boolean.toString(incremental));
+                if (getBuildCache().isUpToDate(outputJS, fingerprint)) {
+                    getLog().info(outputJS.getName() + " is up to date, skipping EcmaScript compilation");
+                    return;
+                }
+                getBuildCache().invalidate(outputJS);
             }
-            if (experimental) {
-                args.add("--experimental");
+            String key = null;
+            if (sharedCache) {
+                key = getSharedCache().key(outputJS, withDependencies(toCompile), basedir, version,
+                        Boolean.toString(experimental), strategy, Boolean.toString(incremental));
             }
+            // Compiled next to the output (Traceur names the modules relative to the output directory), and then
+            // renamed, so the output is never read half-written, and is not touched when its content is the same.
+            File compiled = BundlePublisher.createTemporaryFile(outputJS);
+            try {
+                if (key != null && restore(key, compiled)) {
+                    getLog().info(outputJS.getName() + " restored from the shared compilation cache");
+                } else {
+                    if (incremental) {
+                        compileIncrementally(outputJS, compiled, strategy, toCompile, metrics);
+                    } else {
+                        getLog().info("Compiling EcmaScript files : " + toCompile + " to " + outputJS
+                                .getAbsolutePath());
+                        execute(compiled, strategy, toCompile, metrics);
+                    }
+                    if (key != null) {
+                        try {
+                            getSharedCache().store(key, compiled);
+                        } catch (IOException e) {
+                            getLog().warn("Cannot store " + outputJS.getName() + " in the shared compilation cache",
+                                    e);
+                        }
+                    }
+                }
+                CompilationMetrics.Measure write = metrics.start(CompilationMetrics.Phase.WRITE);
+                long written = BundlePublisher.replaceIfChanged(outputJS, compiled);
+                write.stop();
+                if (written == 0) {
+                    getLog().info(outputJS.getName() + " has not changed");
+                }
+                metrics.written(written);
+            } finally {
+                FileUtils.deleteQuietly(compiled);
+            }
+            File minified = null;
+            if (minify) {
+                CompilationMetrics.Measure minification = metrics.start(CompilationMetrics.Phase.MINIFICATION);
+                try {
+                    metrics.written(new Minifier(new File(buildDirectory, "traceur/minified")).minify(outputJS));
+                    minified = Minifier.getMinifiedFile(outputJS);
+                } finally {
+                    minification.stop();
+                }
+            }
+            CompilationMetrics.Measure publish = metrics.start(CompilationMetrics.Phase.WRITE);
+            BundlePublisher publisher = new BundlePublisher(hashedOutput, precompress);
+            metrics.written(publisher.publish(outputJS));
+            if (minified != null) {
+                metrics.written(publisher.publish(minified));
+            }
+            publish.stop();
+            if (buildCache) {
+                getBuildCache().store(outputJS, fingerprint);
+            }
+        }
+    }
 
-            args.add("--modules=" + moduleStrategy);
-            npm.execute("traceur", args.toArray(new String[args.size()]));
+    private boolean restore(String key, File outputJS) {
+        try {
+            return getSharedCache().restore(key, outputJS);
+        } catch (IOException e) {
+            getLog().warn("Cannot restore " + outputJS.getName() + " from the shared compilation cache", e);
+            return false;
         }
     }
 
+    /**
+     * Compiles each file to its own fragment, reusing the fragments whose source and dependencies have not changed,
+     * and writes the given destination by concatenating the fragments in the given (topological) order. So, on
+     * change, only the changed file and the files depending on it are recompiled.
+     */
+    private void compileIncrementally(File outputJS, File destination, String strategy, List<File> toCompile,
+                                      CompilationMetrics metrics)
+            throws MojoExecutionException, IOException {
+        FragmentStore fragments = new FragmentStore(new File(buildDirectory, "traceur/fragments"), outputJS);
+        List<File> sources = new ArrayList<>(toCompile);
+        for (File source : sources) {
+            String fingerprint = fragments.fingerprint(source, getDependencyIndex().getDependencies(source), version,
+                    Boolean.toString(experimental), strategy);
+            if (!fragments.isUpToDate(source, fingerprint)) {
+                getLog().info("Compiling EcmaScript file : " + source.getAbsolutePath());
+                fragments.remove(source);
+                // Compiled next to the output, so the modules get the same names as in a regular build.
+                File compiled = BundlePublisher.createTemporaryFile(outputJS);
+                try {
+                    execute(compiled, strategy, Collections.singletonList(source), metrics);
+                    fragments.put(source, compiled);
+                } finally {
+                    FileUtils.deleteQuietly(compiled);
+                }
+                fragments.store(source, fingerprint);
+            }
+        }
+        fragments.retain(sources);
+        getLog().info("Assembling " + sources.size() + " compiled EcmaScript files to " + outputJS
+                .getAbsolutePath());
+        CompilationMetrics.Measure write = metrics.start(CompilationMetrics.Phase.WRITE);
+        fragments.concat(sources, destination);
+        write.stop();
+    }
+
+    private void execute(File outputJS, String strategy, List<File> toCompile, CompilationMetrics metrics)
+            throws MojoExecutionException {
+        metrics.compiled(toCompile.size());
+        for (File file : toCompile) {
+            metrics.read(file.length());
+        }
+        CompilationMetrics.Measure compilation = metrics.start(CompilationMetrics.Phase.COMPILATION);
+        try {
+            execute(outputJS, strategy, toCompile);
+        } finally {
+            compilation.stop();
+        }
+    }
+
+    private void execute(File outputJS, String strategy, List<File> toCompile) throws MojoExecutionException {
+        TraceurDaemon instance = traceurDaemon != null ? traceurDaemon : batchProcess;
+        if (instance != null) {
+            try {
+                instance.compile(outputJS, toCompile, experimental, strategy);
+                return;
+            } catch (TraceurCompilationException e) {
+                throw e;
+            } catch (MojoExecutionException e) {
+                if (Thread.currentThread().isInterrupted()) {
+                    // Cancelled, see CancellableTask.
+                    throw e;
+                }
+                getLog().warn("The Traceur daemon is not available, falling back to the regular execution", e);
+            }
+        }
+        new TraceurCli(getNodeManager().getNodeExecutable(),
+                new File(getNodeManager().getNodeModulesDirectory(), NPM_NAME), getLog())
+                .compile(outputJS, toCompile, experimental, strategy);
+    }
+
+    /**
+     * Logs the summary of a compilation, and writes the metrics report ({@code target/traceur/metrics.json}).
+     *
+     * @param metrics the metrics of the compilation
+     * @param watch   whether the compilation has been triggered by a file event
+     */
+    private void report(CompilationMetrics metrics, boolean watch) {
+        metrics.finish();
+        getLog().info(metrics.summary());
+        if (watch) {
+            history.add(metrics);
+            getLog().info(history.summary());
+        }
+        try {
+            FileUtils.writeStringToFile(new File(buildDirectory, "traceur/metrics.json"),
+                    "{\n  \"lastCompilation\": " + metrics.toJson() + ",\n  \"watch\": " + history.toJson()
+                            + "\n}\n", Charsets.UTF_8);
+        } catch (IOException e) {
+            getLog().warn("Cannot write the Traceur metrics report", e);
+        }
+    }
+
+    /**
+     * Creates a Traceur daemon, used by the daemon mode and by the batched mode. The Node process is started on the
+     * first compilation.
+     *
+     * @return the daemon
+     */
+    TraceurDaemon createTraceurDaemon() {
+        return new TraceurDaemon(getNodeManager().getNodeExecutable(),
+                new File(getNodeManager().getNodeModulesDirectory(), NPM_NAME),
+                new File(buildDirectory, "traceur"), getLog());
+    }
+
+    private synchronized TraceurDaemon getTraceurDaemon() {
+        if (traceurDaemon == null) {
+            final TraceurDaemon instance = createTraceurDaemon();
+            Runtime.getRuntime().addShutdownHook(new Thread("traceur-daemon-shutdown") {
+                @Override
+                public void run() {
+                    instance.close();
+                }
+            });
+            traceurDaemon = instance;
+        }
+        return traceurDaemon;
+    }
+
+    /**
+     * Gets the given files followed by the files they import (directly or not) that are not in the list. Traceur
+     * inlines the imported modules in the output, even when they are not compiled directly (no marker, or located
+     * in an excluded directory), so they are part of the inputs of the compilation.
+     *
+     * @param files the compiled files
+     * @return the files and their dependencies
+     */
+    private List<File> withDependencies(List<File> files) {
+        Set<File> inputs = new LinkedHashSet<>();
+        for (File file : files) {
+            inputs.add(file.getAbsoluteFile().toPath().normalize().toFile());
+        }
+        Set<File> dependencies = new TreeSet<>();
+        for (File file : files) {
+            dependencies.addAll(getDependencyIndex().getDependencies(file));
+        }
+        dependencies.removeAll(inputs);
+        List<File> result = new ArrayList<>(files);
+        result.addAll(dependencies);
+        return result;
+    }
+
+    private synchronized DependencyIndex getDependencyIndex() {
+        if (dependencies == null) {
+            dependencies = new DependencyIndex(new File(buildDirectory, "traceur/dependencies.index"));
+        }
+        return dependencies;
+    }
+
+    private synchronized BuildCache getBuildCache() {
+        if (cache == null) {
+            cache = new BuildCache(new File(buildDirectory, "traceur/build-cache"));
+        }
+        return cache;
+    }
+
+    private synchronized SharedCache getSharedCache() {
+        if (shared == null) {
+            File directory = sharedCacheDirectory;
+            if (directory == null) {
+                directory = new File(System.getProperty("user.home"), ".m2/repository/.cache/wisdom-traceur");
+            }
+            shared = new SharedCache(directory, sharedCacheSize * 1024L * 1024L);
+        }
+        return shared;
+    }
+
     /**
      * Checks whether the given file should be compiled or not.
      *
@@ -200,78 +1122,196 @@ public class TraceurMojo extends AbstractWisdomWatcherMojo implements Constants
             }
         }
         // It does not match the filter, we try the comment approach.
-
-        String content;
         try {
-            content = FileUtils.readFileToString(file);
+            return getMarkerDetector().containsMarker(file);
         } catch (IOException e) {
             getLog().error("Cannot read the content of " + file.getAbsolutePath(), e);
             return false;
         }
-        String lower = content.toLowerCase();
-        return lower.contains("!ecmascript6") || lower.contains("!es6");
+    }
+
+    private synchronized MarkerDetector getMarkerDetector() {
+        if (markers == null) {
+            markers = new MarkerDetector(markerScanLimit * 1024L);
+        }
+        return markers;
     }
 
     /**
      * Checks if a filtered version of the input file exists, and uses this one, otherwise
      * it will use the unfiltered version. Then Compiles the input JavaScript 6 file into valid
      * JavaScript 5 using traceur executed by NPM. The traceur command takes as agruments --out,
-     * output file destination, --script, input file's location.
+     * output file destination, --script, input file's location. When the daemon mode is enabled, the compilation
+     * is delegated to a long-lived Node process started on the first call.
      *
      * @param input the Javascript file to compile.
      * @throws WatchingException if a compilation error occurs.
      */
     public void process(File input) throws WatchingException {
+        // The file has changed, even if its size and date look the same.
+        getMarkerDetector().invalidate(input);
+        getDependencyIndex().invalidate(input);
+        refreshFilteredVersion(input);
+        if (daemon) {
+            getTraceurDaemon();
+        }
+        CompilationMetrics metrics = new CompilationMetrics();
         try {
-            compile();
+            compile(metrics, Collections.singleton(input));
         } catch (MojoExecutionException e) {
-            if (!Strings.isNullOrEmpty(npm.getLastErrorStream())) {
-                throw build(npm.getLastErrorStream(), input);
-            } else {
-                throw new WatchingException(ERROR_TITLE,
-                        "Error while compiling " + input.getAbsolutePath(), input, e);
+            logErrors(e);
+            throw toWatchingException(e, input);
+        } finally {
+            report(metrics, true);
+        }
+    }
+
+    private WatchingException toWatchingException(MojoExecutionException e, File input) {
+        String errors = e instanceof TraceurCompilationException ?
+                ((TraceurCompilationException) e).getErrorStream() : null;
+        if (!Strings.isNullOrEmpty(errors)) {
+            return build(errors, input);
+        } else {
+            return new WatchingException(ERROR_TITLE,
+                    "Error while compiling " + input.getAbsolutePath(), input, e);
+        }
+    }
+
+    /**
+     * Handles a file event. Without quiet period, the compilation is done immediately. Otherwise, it is scheduled
+     * with the other changes of the current burst. In the latter case, compilation errors are reported in the log.
+     *
+     * @param file the changed file
+     * @throws WatchingException if the compilation is done immediately and fails
+     */
+    private void onChange(File file) throws WatchingException {
+        if (quietPeriod <= 0) {
+            process(file);
+        } else {
+            getScheduler().schedule(file);
+        }
+    }
+
+    private synchronized CompilationScheduler getScheduler() {
+        if (scheduler == null) {
+            scheduler = new CompilationScheduler(quietPeriod, new CompilationScheduler.Task() {
+                @Override
+                public void run(Set<File> changes) throws Exception {
+                    for (File file : changes) {
+                        getMarkerDetector().invalidate(file);
+                        getDependencyIndex().invalidate(file);
+                        refreshFilteredVersion(file);
+                    }
+                    if (daemon) {
+                        getTraceurDaemon();
+                    }
+                    CompilationMetrics metrics = new CompilationMetrics();
+                    try {
+                        compile(metrics, changes);
+                    } catch (MojoExecutionException e) {
+                        if (!Thread.currentThread().isInterrupted()) {
+                            logErrors(e);
+                        }
+                        throw e;
+                    } finally {
+                        // Failed runs are reported too, superseded ones are not.
+                        if (!Thread.currentThread().isInterrupted()) {
+                            report(metrics, true);
+                        }
+                    }
+                }
+            }, getLog());
+        }
+        return scheduler;
+    }
+
+    /**
+     * Logs each compilation error reported by Traceur, or the whole error output if it cannot be parsed.
+     *
+     * @param e the failure
+     */
+    private void logErrors(MojoExecutionException e) {
+        if (!(e instanceof TraceurCompilationException)
+                || Strings.isNullOrEmpty(((TraceurCompilationException) e).getErrorStream())) {
+            return;
+        }
+        TraceurCompilationException failure = (TraceurCompilationException) e;
+        List<CompilationError> errors = failure.getErrors();
+        if (errors.isEmpty()) {
+            getLog().error(failure.getErrorStream());
+            return;
+        }
+        getLog().error(ERROR_TITLE + ": " + errors.size() + " error(s)");
+        for (CompilationError error : errors) {
+            getLog().error(getSource(error.getFile()).getAbsolutePath() + ":" + error.getLine() + ":"
+                    + error.getCharacter() + " - " + error.getReason());
+        }
+    }
+
+    /**
+     * @return the source of the given compiled file, which may be a filtered version
+     */
+    private File getSource(File compiled) {
+        for (FilteredResourceIndex index : filteredResources.values()) {
+            File source = index.getSource(compiled);
+            if (source != null) {
+                return source;
             }
         }
+        return compiled;
     }
 
     /**
-     * Builds the WatchingException by searching the error msg, invoked during the compilation of
-     * the EcmaScript(JavaScript) 6, for specified patterns. If no
-     * matching expressions are found then the original error msg is returned.
+     * Builds the WatchingException by parsing all the errors reported in the error output of the compilation of
+     * the EcmaScript(JavaScript) 6. The exception points to the first error, in the file containing it, and its
+     * message lists the other errors. If no error can be parsed, the first non-empty line of the output is used as
+     * message.
      *
      * @param message The message from last error stream.
-     * @param source  is the current file either being created, processed, or updated.
+     * @param source  is the current file either being created, processed, or updated, used when the errors do
+     *                not name their file.
      * @return a WatchingException for EcmaScript compilation errors.
      */
     public WatchingException build(String message, File source) {
-        String[] lines = message.split("\n");
-        for (String l : lines) {
-            if (!Strings.isNullOrEmpty(l)) {
-                message = l.trim();  //NOSONAR
-                break;
+        List<CompilationError> errors = CompilationError.parse(message);
+        if (errors.isEmpty()) {
+            for (String l : message.split("\n")) {
+                if (!Strings.isNullOrEmpty(l.trim())) {
+                    message = l.trim();  //NOSONAR
+                    break;
+                }
             }
-        }
-        final Matcher matcher = TRACEUR_COMPILATION_ERROR.matcher(message);
-        if (matcher.matches()) {
-            String line = matcher.group(2);
-            String character = matcher.group(3);
-            String reason = matcher.group(4).trim();
-            return new WatchingException(ERROR_TITLE, reason, source,
-                    Integer.valueOf(line), Integer.valueOf(character), null);
-        } else {
             return new WatchingException(ERROR_TITLE, message, source, null);
         }
+        CompilationError first = errors.get(0);
+        StringBuilder reason = new StringBuilder(first.getReason());
+        if (errors.size() > 1) {
+            reason.append("\n\n").append(errors.size() - 1).append(" other error(s):");
+            for (CompilationError error : errors.subList(1, errors.size())) {
+                reason.append('\n').append(getSource(error.getFile()).getName()).append(':')
+                        .append(error.getLine()).append(':').append(error.getCharacter()).append(" - ")
+                        .append(error.getReason());
+            }
+        }
+        return new WatchingException(ERROR_TITLE, reason.toString(), getSource(first.getFile()),
+                first.getLine(), first.getCharacter(), null);
     }
 
     /**
      * Checks to make sure the input file is the acceptable type .js.
      *
      * @param file is the file.
-     * @return true if the file is js, otherwise false.
+     * @return true if the file is js and is not excluded, otherwise false.
      */
     @Override
     public boolean accept(File file) {
-        return file.getName().endsWith(INPUT_EXTENSION);
+        return file.getName().endsWith(INPUT_EXTENSION) && !isExcluded(file);
+    }
+
+    private boolean isExcluded(File file) {
+        return excludes != null
+                && (new AssetWalker(getInternalAssetsDirectory(), INPUT_EXTENSION, excludes).isExcluded(file)
+                || new AssetWalker(getExternalAssetsDirectory(), INPUT_EXTENSION, excludes).isExcluded(file));
     }
 
     /**
@@ -283,7 +1323,7 @@ public class TraceurMojo extends AbstractWisdomWatcherMojo implements Constants
      */
     @Override
     public boolean fileCreated(File file) throws WatchingException {
-        process(file);
+        onChange(file);
         return true;
     }
 
@@ -307,7 +1347,7 @@ public class TraceurMojo extends AbstractWisdomWatcherMojo implements Constants
      */
     @Override
     public boolean fileDeleted(File file) throws WatchingException {
-        process(file);
+        onChange(file);
         return true;
     }
 }
@@ -0,0 +1,117 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2014 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.mojo.traceur;
+
+import com.google.common.io.Files;
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.regex.Pattern;
+
+/**
+ * Publishes the Traceur runtime ({@code bin/traceur-runtime.js} from the Traceur module) as a separate asset.
+ * <p>
+ * The compiled code relies on the runtime ({@code $traceurRuntime}), which must be loaded once by the page before the
+ * bundles. The runtime is published under a name containing the Traceur version ({@code traceur-runtime-0.0.87.js}),
+ * so it can be cached forever, and is recorded in the {@link BundlePublisher#MANIFEST manifest} under the logical
+ * name {@link #LOGICAL_NAME}, so pages can reference it without knowing the version. It is only written when missing
+ * or different, and the runtime previously published (of another version, as recorded in the manifest) is removed.
+ * Other files are never removed, even if their name starts with {@code traceur-runtime-}: the output directory
+ * mirrors the assets of the project.
+ */
+public final class TraceurRuntime {
+
+    /**
+     * The runtime script, relative to the Traceur module directory.
+     */
+    public static final String SCRIPT = "bin/traceur-runtime.js";
+
+    /**
+     * The logical name of the runtime, used in the manifest.
+     */
+    public static final String LOGICAL_NAME = "traceur-runtime.js";
+
+    private static final Pattern PUBLISHED = Pattern.compile("traceur-runtime-\\d+\\.\\d+\\.\\d+[\\w.-]*\\.js");
+
+    private TraceurRuntime() {
+        // Avoid direct instantiation.
+    }
+
+    /**
+     * Gets the name of the published runtime.
+     *
+     * @param version the Traceur version
+     * @return the name
+     */
+    public static String getName(String version) {
+        return "traceur-runtime-" + version + ".js";
+    }
+
+    /**
+     * Publishes the runtime in the given directory.
+     *
+     * @param traceur     the Traceur module directory
+     * @param version     the Traceur version
+     * @param directory   the output directory
+     * @param precompress whether a gzip-compressed copy is written too
+     * @return the number of bytes written, {@code 0} if the runtime was already published
+     * @throws IOException if the runtime cannot be read or written
+     */
+    public static long publish(File traceur, String version, File directory, boolean precompress)
+            throws IOException {
+        File script = new File(traceur, SCRIPT);
+        if (!script.isFile()) {
+            throw new IOException("The Traceur runtime " + script.getAbsolutePath() + " does not exist");
+        }
+        String name = getName(version);
+        File published = new File(directory, name);
+        long written = 0;
+        byte[] content = null;
+        // The runtime of a given version never changes: avoid reading it when already published.
+        if (!published.isFile() || published.length() != script.length()) {
+            content = Files.toByteArray(script);
+            written += BundlePublisher.writeIfChanged(published, content);
+        }
+        File compressed = new File(directory, name + BundlePublisher.GZIP_EXTENSION);
+        if (precompress && !compressed.isFile()) {
+            if (content == null) {
+                content = Files.toByteArray(script);
+            }
+            written += BundlePublisher.writeIfChanged(compressed, BundlePublisher.gzip(content));
+        }
+        File manifest = new File(directory, BundlePublisher.MANIFEST);
+        removePreviousVersion(directory, BundlePublisher.readManifest(manifest).get(LOGICAL_NAME), name);
+        BundlePublisher.updateManifest(manifest, LOGICAL_NAME, name);
+        return written;
+    }
+
+    /**
+     * Removes the previously published runtime, unless it is the current one. Only names of published runtimes are
+     * considered, so an edited manifest cannot delete other files.
+     */
+    private static void removePreviousVersion(File directory, String previous, String current) {
+        if (previous == null || previous.equals(current) || !PUBLISHED.matcher(previous).matches()) {
+            return;
+        }
+        FileUtils.deleteQuietly(new File(directory, previous));
+        FileUtils.deleteQuietly(new File(directory, previous + BundlePublisher.GZIP_EXTENSION));
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2014 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+/*
+ * Long-lived Traceur compiler used by the Wisdom Traceur plugin in watch mode.
+ *
+ * Usage: node daemon.js <traceur module directory>
+ *
+ * Requests are read from stdin, one per line, fields separated by tabulations:
+ *     compile <output> <module strategy> <experimental: true|false> <input>...
+ * For each request, the daemon writes on stdout:
+ *     @@traceur:error <message>      (zero or more)
+ *     @@traceur:done ok|failed
+ * Any other line written on stdout is not part of the protocol.
+ */
+'use strict';
+
+var path = require('path');
+var readline = require('readline');
+
+var PREFIX = '@@traceur:';
+var traceurDirectory = process.argv[2];
+var traceur = require(traceurDirectory);
+var compileToSingleFile = traceur.recursiveModuleCompileToSingleFile ||
+    require(path.join(traceurDirectory, 'src', 'node', 'recursiveModuleCompile.js'))
+        .recursiveModuleCompileToSingleFile;
+
+function createOptions(modules, experimental) {
+  var Options = traceur.util.CommandOptions || traceur.util.Options;
+  var options = new Options();
+  options.modules = modules;
+  if (experimental) {
+    options.experimental = true;
+  }
+  return options;
+}
+
+function reply(line) {
+  process.stdout.write(PREFIX + line.replace(/[\r\n]+/g, ' ') + '\n');
+}
+
+function failed(err) {
+  var errors = err && err.errors ? err.errors : (Array.isArray(err) ? err : [err]);
+  errors.forEach(function (e) {
+    reply('error\t' + String(e && e.stack ? e.stack : e));
+  });
+  reply('done\tfailed');
+}
+
+// Requests are processed sequentially, the Java side waits for the 'done' line before sending the next one.
+var queue = Promise.resolve();
+
+readline.createInterface({input: process.stdin, terminal: false}).on('line', function (line) {
+  var fields = line.split('\t');
+  if (fields[0] !== 'compile' || fields.length < 5) {
+    return failed(new Error('Invalid request: ' + line));
+  }
+  var output = fields[1];
+  var options = createOptions(fields[2], fields[3] === 'true');
+  var inputs = fields.slice(4).map(function (file) {
+    return {name: file, type: 'module'};
+  });
+  queue = queue.then(function () {
+    return compileToSingleFile(output, inputs, options);
+  }).then(function () {
+    reply('done\tok');
+  }, failed);
+}).on('close', function () {
+  process.exit(0);
+});
@@ -0,0 +1,120 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2014 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.mojo.traceur;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assume.assumeFalse;
+
+public class AssetWalkerTest {
+
+    File basedir = new File("target/workbench/walker");
+
+    @Before
+    public void setUp() throws IOException {
+        FileUtils.deleteQuietly(basedir);
+        FileUtils.write(new File(basedir, "app.js"), "");
+        FileUtils.write(new File(basedir, "app.css"), "");
+        FileUtils.write(new File(basedir, "lib/jquery.min.js"), "");
+        FileUtils.write(new File(basedir, "libs/angular.js"), "");
+        FileUtils.write(new File(basedir, "node_modules/traceur/traceur.js"), "");
+        FileUtils.write(new File(basedir, "components/widget.js"), "");
+        FileUtils.write(new File(basedir, "components/node_modules/left-pad/index.js"), "");
+    }
+
+    private List<String> walk(String... excludes) throws IOException {
+        final List<String> names = new ArrayList<>();
+        final String root = basedir.getAbsolutePath() + File.separator;
+        new AssetWalker(basedir, ".js", excludes).walk(new AssetWalker.Visitor() {
+            @Override
+            public void visit(File file) {
+                names.add(file.getAbsolutePath().substring(root.length()).replace(File.separatorChar, '/'));
+            }
+        });
+        return names;
+    }
+
+    @Test
+    public void testWalkWithoutExcludes() throws IOException {
+        assertThat(walk()).containsOnly("app.js", "lib/jquery.min.js", "libs/angular.js",
+                "node_modules/traceur/traceur.js", "components/widget.js",
+                "components/node_modules/left-pad/index.js");
+    }
+
+    @Test
+    public void testExcludes() throws IOException {
+        assertThat(walk("libs/**", "**/node_modules/**", "**/*.min.js")).containsOnly("app.js",
+                "components/widget.js");
+        assertThat(walk("node_modules/**")).containsOnly("app.js", "lib/jquery.min.js", "libs/angular.js",
+                "components/widget.js", "components/node_modules/left-pad/index.js");
+    }
+
+    @Test
+    public void testMissingDirectory() throws IOException {
+        assertThat(new AssetWalker(new File(basedir, "missing"), ".js", null).walk(new AssetWalker.Visitor() {
+            @Override
+            public void visit(File file) {
+                throw new IllegalStateException("Unexpected file " + file);
+            }
+        })).isEqualTo(0);
+    }
+
+    @Test
+    public void testSymbolicLinksAreFollowed() throws IOException {
+        assumeFalse(System.getProperty("os.name").toLowerCase().contains("win"));
+        File shared = new File("target/workbench/walker-shared");
+        FileUtils.deleteQuietly(shared);
+        FileUtils.write(new File(shared, "util.js"), "");
+        FileUtils.write(new File(shared, "widgets/button.js"), "");
+        Files.createSymbolicLink(new File(basedir, "util.js").toPath(),
+                new File(shared, "util.js").getAbsoluteFile().toPath());
+        Files.createSymbolicLink(new File(basedir, "widgets").toPath(),
+                new File(shared, "widgets").getAbsoluteFile().toPath());
+        // Neither a broken link nor a loop stop the walk.
+        Files.createSymbolicLink(new File(basedir, "broken.js").toPath(),
+                new File(shared, "missing.js").getAbsoluteFile().toPath());
+        Files.createSymbolicLink(new File(basedir, "components/loop").toPath(), basedir.getAbsoluteFile().toPath());
+
+        assertThat(walk("libs/**", "**/node_modules/**", "**/*.min.js")).containsOnly("app.js",
+                "components/widget.js", "util.js", "widgets/button.js");
+    }
+
+    @Test
+    public void testIsExcluded() {
+        AssetWalker walker = new AssetWalker(basedir, ".js", new String[]{"libs/**", "**/node_modules/**",
+                "**/*.min.js"});
+        assertThat(walker.isExcluded(new File(basedir, "app.js"))).isFalse();
+        assertThat(walker.isExcluded(new File(basedir, "components/widget.js"))).isFalse();
+        assertThat(walker.isExcluded(new File(basedir, "libs/angular.js"))).isTrue();
+        assertThat(walker.isExcluded(new File(basedir, "lib/jquery.min.js"))).isTrue();
+        assertThat(walker.isExcluded(new File(basedir, "components/node_modules/left-pad/index.js"))).isTrue();
+        // Outside of the asset directory.
+        assertThat(walker.isExcluded(new File("libs/angular.js"))).isFalse();
+    }
+}
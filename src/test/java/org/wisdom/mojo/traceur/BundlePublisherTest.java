@@ -0,0 +1,130 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2014 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.mojo.traceur;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BundlePublisherTest {
+
+    File basedir = new File("target/workbench/publisher");
+
+    @Before
+    public void setUp() {
+        FileUtils.deleteQuietly(basedir);
+    }
+
+    @Test
+    public void testPublication() throws Exception {
+        File bundle = new File(basedir, "acme.js");
+        FileUtils.write(bundle, "var a = 1;");
+        BundlePublisher publisher = new BundlePublisher(true, true);
+        assertThat(publisher.publish(bundle)).isGreaterThan(0);
+
+        Map<String, String> manifest = BundlePublisher.readManifest(new File(basedir, BundlePublisher.MANIFEST));
+        String hashed = manifest.get("acme.js");
+        assertThat(hashed).matches("acme-[0-9a-f]{12}\\.js");
+        assertThat(FileUtils.readFileToString(new File(basedir, hashed))).isEqualTo("var a = 1;");
+        try (InputStream in = new GZIPInputStream(new FileInputStream(new File(basedir, hashed + ".gz")))) {
+            assertThat(org.apache.commons.io.IOUtils.toString(in)).isEqualTo("var a = 1;");
+        }
+        assertThat(new File(basedir, "acme.js.gz")).isFile();
+
+        // Same content: nothing is rewritten.
+        assertThat(publisher.publish(bundle)).isEqualTo(0);
+
+        // New content: new hashed copy, the previous one is removed.
+        FileUtils.write(bundle, "var a = 2;");
+        assertThat(publisher.publish(bundle)).isGreaterThan(0);
+        String updated = BundlePublisher.readManifest(new File(basedir, BundlePublisher.MANIFEST)).get("acme.js");
+        assertThat(updated).isNotEqualTo(hashed);
+        assertThat(new File(basedir, hashed)).doesNotExist();
+        assertThat(new File(basedir, hashed + ".gz")).doesNotExist();
+        assertThat(basedir.list()).containsOnly("acme.js", "acme.js.gz", updated, updated + ".gz",
+                BundlePublisher.MANIFEST);
+    }
+
+    @Test
+    public void testOnlyThePublishedVersionIsRemoved() throws Exception {
+        File bundle = new File(basedir, "acme.js");
+        // A file of the user whose name looks hashed, not listed in the manifest.
+        File other = new File(basedir, "acme-0123456789ab.js");
+        FileUtils.write(other, "var other;");
+        FileUtils.write(bundle, "var a = 1;");
+        BundlePublisher publisher = new BundlePublisher(true, false);
+        publisher.publish(bundle);
+        String hashed = BundlePublisher.readManifest(new File(basedir, BundlePublisher.MANIFEST)).get("acme.js");
+
+        FileUtils.write(bundle, "var a = 2;");
+        publisher.publish(bundle);
+        String updated = BundlePublisher.readManifest(new File(basedir, BundlePublisher.MANIFEST)).get("acme.js");
+        assertThat(new File(basedir, hashed)).doesNotExist();
+        assertThat(basedir.list()).containsOnly("acme.js", other.getName(), updated, BundlePublisher.MANIFEST);
+    }
+
+    @Test
+    public void testManifestIsSharedByTheBundlesOfADirectory() throws Exception {
+        File a = new File(basedir, "a.js");
+        File b = new File(basedir, "b.js");
+        FileUtils.write(a, "var a = 1;");
+        FileUtils.write(b, "var b = 1;");
+        BundlePublisher publisher = new BundlePublisher(true, false);
+        publisher.publish(a);
+        publisher.publish(b);
+        Map<String, String> manifest = BundlePublisher.readManifest(new File(basedir, BundlePublisher.MANIFEST));
+        assertThat(manifest).hasSize(2).containsKey("a.js").containsKey("b.js");
+        assertThat(new File(basedir, "a.js.gz")).doesNotExist();
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        File bundle = new File(basedir, "acme.js");
+        FileUtils.write(bundle, "var a = 1;");
+        assertThat(new BundlePublisher(false, false).publish(bundle)).isEqualTo(0);
+        assertThat(basedir.list()).containsOnly("acme.js");
+    }
+
+    @Test
+    public void testReplaceIfChanged() throws Exception {
+        File bundle = new File(basedir, "acme.js");
+        FileUtils.write(bundle, "var a = 1;");
+        File replacement = BundlePublisher.createTemporaryFile(bundle);
+        assertThat(replacement.getName()).startsWith(".acme-").endsWith(".js");
+        FileUtils.write(replacement, "var a = 1;");
+        assertThat(BundlePublisher.replaceIfChanged(bundle, replacement)).isEqualTo(0);
+        assertThat(replacement).doesNotExist();
+
+        replacement = BundlePublisher.createTemporaryFile(bundle);
+        FileUtils.write(replacement, "var a = 2;");
+        assertThat(BundlePublisher.replaceIfChanged(bundle, replacement)).isEqualTo(10);
+        assertThat(replacement).doesNotExist();
+        assertThat(FileUtils.readFileToString(bundle)).isEqualTo("var a = 2;");
+        assertThat(basedir.list()).containsOnly("acme.js");
+    }
+}
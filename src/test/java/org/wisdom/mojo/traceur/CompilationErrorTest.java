@@ -0,0 +1,65 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2014 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.mojo.traceur;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CompilationErrorTest {
+
+    @Test
+    public void testSingleError() {
+        List<CompilationError> errors = CompilationError.parse(
+                "[ '/project/src/main/resources/assets/a.es6.js:11:15: Unexpected end of input' ]\n");
+        assertThat(errors).hasSize(1);
+        CompilationError error = errors.get(0);
+        assertThat(error.getFile()).isEqualTo(new File("/project/src/main/resources/assets/a.es6.js"));
+        assertThat(error.getLine()).isEqualTo(11);
+        assertThat(error.getCharacter()).isEqualTo(15);
+        assertThat(error.getReason()).isEqualTo("Unexpected end of input");
+    }
+
+    @Test
+    public void testAllErrorsAreParsed() {
+        List<CompilationError> errors = CompilationError.parse(
+                "    at Object.<anonymous> (/usr/lib/node_modules/traceur/src/node/command.js:1:10)\n"
+                        + "[ '/project/a.es6.js:3:5: Unexpected token )',\n"
+                        + "  '/project/b.es6.js:7:1: \\'foo\\' is not defined',\n"
+                        + "  '/project/c.es6.js:9:2: Semi-colon expected' ]\n");
+        assertThat(errors).hasSize(3);
+        assertThat(errors.get(0).getFile().getName()).isEqualTo("a.es6.js");
+        assertThat(errors.get(1).getFile().getName()).isEqualTo("b.es6.js");
+        assertThat(errors.get(1).getLine()).isEqualTo(7);
+        assertThat(errors.get(1).getReason()).isEqualTo("'foo' is not defined");
+        assertThat(errors.get(2).getFile().getName()).isEqualTo("c.es6.js");
+        assertThat(errors.get(2).getCharacter()).isEqualTo(2);
+    }
+
+    @Test
+    public void testUnparseableOutput() {
+        assertThat(CompilationError.parse(null)).isEmpty();
+        assertThat(CompilationError.parse("")).isEmpty();
+        assertThat(CompilationError.parse("Error: Cannot find module 'traceur'\n")).isEmpty();
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2014 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.mojo.traceur;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CompilationSchedulerTest {
+
+    private CompilationScheduler scheduler;
+
+    @After
+    public void tearDown() {
+        if (scheduler != null) {
+            scheduler.stop();
+        }
+    }
+
+    @Test
+    public void testBurstIsCoalesced() throws Exception {
+        final List<Set<File>> runs = new CopyOnWriteArrayList<>();
+        final CountDownLatch done = new CountDownLatch(1);
+        scheduler = new CompilationScheduler(200, new CompilationScheduler.Task() {
+            @Override
+            public void run(Set<File> changes) {
+                runs.add(changes);
+                done.countDown();
+            }
+        }, new SystemStreamLog());
+
+        for (int i = 0; i < 50; i++) {
+            scheduler.schedule(new File("file-" + (i % 10) + ".js"));
+        }
+
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        Thread.sleep(500);
+        assertThat(runs).hasSize(1);
+        assertThat(runs.get(0)).hasSize(10);
+    }
+
+    @Test
+    public void testRunningCompilationIsSuperseded() throws Exception {
+        final List<Set<File>> completed = new CopyOnWriteArrayList<>();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(1);
+        scheduler = new CompilationScheduler(50, new CompilationScheduler.Task() {
+            @Override
+            public void run(Set<File> changes) throws Exception {
+                started.countDown();
+                if (changes.size() == 1) {
+                    // First run, wait until cancelled.
+                    Thread.sleep(60000);
+                }
+                completed.add(changes);
+                done.countDown();
+            }
+        }, new SystemStreamLog());
+
+        scheduler.schedule(new File("a.js"));
+        assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+        scheduler.schedule(new File("b.js"));
+
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(completed).hasSize(1);
+        // The files of the cancelled run are compiled by the new one.
+        assertThat(completed.get(0)).containsOnly(new File("a.js"), new File("b.js"));
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2014 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.mojo.traceur;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DependencyIndexTest {
+
+    File basedir = new File("target/workbench/dependencies");
+    File storage = new File(basedir, "dependencies.index");
+
+    File app;
+    File model;
+    File util;
+    File standalone;
+
+    @Before
+    public void setUp() throws IOException {
+        FileUtils.deleteQuietly(basedir);
+        app = new File(basedir, "app.js");
+        model = new File(basedir, "model/model.js");
+        util = new File(basedir, "util.js");
+        standalone = new File(basedir, "a-standalone.js");
+        FileUtils.write(app, "//!es6\nimport {Model} from './model/model';\n// import x from './commented';\n"
+                + "class App {}");
+        FileUtils.write(model, "import {\n  format,\n  parse\n} from '../util.js';\nexport class Model {}");
+        FileUtils.write(util, "import $ from 'jquery';\nexport function format() {}");
+        FileUtils.write(standalone, "var a = 1;");
+    }
+
+    @Test
+    public void testImports() {
+        DependencyIndex index = new DependencyIndex(storage);
+        assertThat(index.getImports(app)).containsOnly(model.getAbsoluteFile());
+        assertThat(index.getImports(model)).containsOnly(util.getAbsoluteFile());
+        // Non relative modules are not tracked.
+        assertThat(index.getImports(util)).isEmpty();
+        assertThat(index.getDependencies(app)).containsExactly(model.getAbsoluteFile(), util.getAbsoluteFile());
+    }
+
+    @Test
+    public void testCommentMarkersInLiterals() throws IOException {
+        File page = new File(basedir, "page.js");
+        FileUtils.write(page, "var assets = \"assets/*\"; var url = 'http://example.com'; import './util';\n"
+                + "var re = /[/*]/g;\n"
+                + "import {Model} from './model/model';\n"
+                + "/* import x from './commented'; */ var t = `//${assets}`;\n"
+                + "import './app'; // import y from './other';\n"
+                + "var c = a / b; import './a-standalone'; // */\n");
+        DependencyIndex index = new DependencyIndex(storage);
+        assertThat(index.getImports(page)).containsOnly(util.getAbsoluteFile(), model.getAbsoluteFile(),
+                app.getAbsoluteFile(), standalone.getAbsoluteFile());
+    }
+
+    @Test
+    public void testTopologicalOrder() {
+        DependencyIndex index = new DependencyIndex(storage);
+        List<File> expected = Arrays.asList(standalone, util, model, app);
+        assertThat(index.sort(Arrays.asList(app, model, util, standalone))).isEqualTo(expected);
+        assertThat(index.sort(Arrays.asList(util, standalone, app, model))).isEqualTo(expected);
+        // Dependencies through files not in the list are kept.
+        assertThat(index.sort(Arrays.asList(app, util))).containsExactly(util, app);
+    }
+
+    @Test
+    public void testCycles() throws IOException {
+        File a = new File(basedir, "cycle/a.js");
+        File b = new File(basedir, "cycle/b.js");
+        FileUtils.write(a, "import './b';");
+        FileUtils.write(b, "import './a';");
+        DependencyIndex index = new DependencyIndex(storage);
+        assertThat(index.sort(Arrays.asList(b, a, standalone))).containsExactly(standalone, a, b);
+    }
+
+    @Test
+    public void testAffectedFiles() {
+        DependencyIndex index = new DependencyIndex(storage);
+        assertThat(index.isAffected(Collections.singletonList(app), Collections.singletonList(util))).isTrue();
+        assertThat(index.isAffected(Collections.singletonList(app), Collections.singletonList(app))).isTrue();
+        assertThat(index.isAffected(Collections.singletonList(util), Collections.singletonList(app))).isFalse();
+        assertThat(index.isAffected(Arrays.asList(util, standalone), Collections.singletonList(model))).isFalse();
+    }
+
+    @Test
+    public void testPersistence() throws IOException {
+        DependencyIndex index = new DependencyIndex(storage);
+        index.getDependencies(app);
+        index.save();
+        assertThat(storage).isFile();
+
+        DependencyIndex reloaded = new DependencyIndex(storage);
+        assertThat(reloaded.getDependencies(app)).containsExactly(model.getAbsoluteFile(), util.getAbsoluteFile());
+
+        // Changes are detected.
+        FileUtils.write(model, "export class Model {}");
+        assertThat(reloaded.getDependencies(app)).containsExactly(model.getAbsoluteFile());
+    }
+}
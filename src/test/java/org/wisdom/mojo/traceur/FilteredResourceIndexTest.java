@@ -0,0 +1,80 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2014 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.mojo.traceur;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FilteredResourceIndexTest {
+
+    File basedir = new File("target/workbench/filtered");
+    File source = new File(basedir, "src/main/resources/assets");
+    File destination = new File(basedir, "target/classes/assets");
+
+    @Before
+    public void setUp() {
+        FileUtils.deleteQuietly(basedir);
+    }
+
+    @Test
+    public void testLookup() throws Exception {
+        FileUtils.write(new File(source, "doc/a.js"), "var a = 1;");
+        FileUtils.write(new File(source, "doc/b.js"), "var b = 1;");
+        FileUtils.write(new File(destination, "doc/a.js"), "var a = 2;");
+        FileUtils.write(new File(destination, "doc/c.css"), "a {}");
+
+        FilteredResourceIndex index = new FilteredResourceIndex(source, destination, TraceurMojo.INPUT_EXTENSION);
+        assertThat(index.getFilteredVersion(new File(source, "doc/a.js")))
+                .isEqualTo(new File(destination, "doc/a.js"));
+        assertThat(index.getFilteredVersion(new File(source, "doc/b.js"))).isNull();
+        assertThat(index.getFilteredVersion(new File(basedir, "doc/a.js"))).isNull();
+        assertThat(index.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void testMissingOutputDirectory() throws Exception {
+        FilteredResourceIndex index = new FilteredResourceIndex(source, destination, TraceurMojo.INPUT_EXTENSION);
+        assertThat(index.getFilteredVersion(new File(source, "a.js"))).isNull();
+        assertThat(index.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void testRefresh() throws Exception {
+        FilteredResourceIndex index = new FilteredResourceIndex(source, destination, TraceurMojo.INPUT_EXTENSION);
+        File a = new File(source, "a.js");
+        assertThat(index.getFilteredVersion(a)).isNull();
+
+        // The index is not reloaded, only refreshed for the changed files.
+        File filtered = new File(destination, "a.js");
+        FileUtils.write(filtered, "var a = 1;");
+        assertThat(index.getFilteredVersion(a)).isNull();
+        index.refresh(a);
+        assertThat(index.getFilteredVersion(a)).isEqualTo(filtered);
+
+        FileUtils.forceDelete(filtered);
+        index.refresh(a);
+        assertThat(index.getFilteredVersion(a)).isNull();
+    }
+}
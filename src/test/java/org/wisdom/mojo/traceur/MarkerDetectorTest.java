@@ -0,0 +1,92 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2014 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.mojo.traceur;
+
+import com.google.common.base.Strings;
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MarkerDetectorTest {
+
+    File basedir = new File("target/workbench/markers");
+
+    @Before
+    public void setUp() {
+        FileUtils.deleteQuietly(basedir);
+    }
+
+    @Test
+    public void testMarkers() throws Exception {
+        MarkerDetector detector = new MarkerDetector(0);
+        assertThat(detector.containsMarker(new File("src/test/resources/hello.es6.js"))).isTrue();
+        assertThat(detector.containsMarker(new File("src/test/resources/human.es6.js"))).isTrue();
+        assertThat(detector.containsMarker(new File("src/test/resources/dummy.es6.js"))).isFalse();
+        assertThat(detector.containsMarker(new File("src/test/resources/earth/human.es6.js"))).isFalse();
+
+        File file = new File(basedir, "script.js");
+        FileUtils.write(file, "// !EcmaScript6\nvar a = 1;");
+        assertThat(detector.containsMarker(file)).isTrue();
+    }
+
+    @Test
+    public void testMarkerAcrossBufferBoundaries() throws Exception {
+        MarkerDetector detector = new MarkerDetector(0);
+        for (int offset = 8180; offset < 8200; offset++) {
+            File file = new File(basedir, "script-" + offset + ".js");
+            FileUtils.write(file, Strings.repeat(" ", offset) + "//!ecmascript6\n");
+            assertThat(detector.containsMarker(file)).isTrue();
+        }
+    }
+
+    @Test
+    public void testLimit() throws Exception {
+        File file = new File(basedir, "script.js");
+        FileUtils.write(file, Strings.repeat(" ", 4096) + "//!es6\n");
+        assertThat(new MarkerDetector(2048).containsMarker(file)).isFalse();
+        assertThat(new MarkerDetector(8192).containsMarker(file)).isTrue();
+        assertThat(new MarkerDetector(0).containsMarker(file)).isTrue();
+    }
+
+    @Test
+    public void testCache() throws Exception {
+        MarkerDetector detector = new MarkerDetector(0);
+        File file = new File(basedir, "script.js");
+        FileUtils.write(file, "//!es6\n");
+        long lastModified = file.lastModified();
+        assertThat(detector.containsMarker(file)).isTrue();
+
+        // Same size, same date: the cached result is used.
+        FileUtils.write(file, "//!xx6\n");
+        assertThat(file.setLastModified(lastModified)).isTrue();
+        assertThat(detector.containsMarker(file)).isTrue();
+
+        detector.invalidate(file);
+        assertThat(detector.containsMarker(file)).isFalse();
+
+        // Size changed.
+        FileUtils.write(file, "//!es6 again\n");
+        assertThat(detector.containsMarker(file)).isTrue();
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2014 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.mojo.traceur;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MinifierTest {
+
+    File basedir = new File("target/workbench/minifier");
+    File cache = new File(basedir, "cache");
+    File output = new File(basedir, "output");
+
+    @Before
+    public void setUp() {
+        FileUtils.deleteQuietly(basedir);
+    }
+
+    @Test
+    public void testMinification() throws Exception {
+        File bundle = new File(output, "acme.js");
+        FileUtils.write(bundle, "// A comment\nfunction greet(name) {\n    var message = 'Hi ' + name;\n"
+                + "    return message;\n}\n");
+        Minifier minifier = new Minifier(cache);
+        assertThat(minifier.minify(bundle)).isGreaterThan(0);
+
+        File minified = new File(output, "acme-min.js");
+        assertThat(Minifier.getMinifiedFile(bundle)).isEqualTo(minified);
+        String code = FileUtils.readFileToString(minified);
+        assertThat(code).doesNotContain("A comment").doesNotContain("message")
+                .endsWith("//# sourceMappingURL=acme-min.js.map\n");
+        String map = FileUtils.readFileToString(new File(output, "acme-min.js.map"));
+        assertThat(map).contains("\"version\":3").contains("acme-min.js").contains("acme.js");
+
+        // Same content: nothing is rewritten.
+        assertThat(minifier.minify(bundle)).isEqualTo(0);
+    }
+
+    @Test
+    public void testCache() throws Exception {
+        File bundle = new File(output, "acme.js");
+        FileUtils.write(bundle, "var a = 1;\n");
+        new Minifier(cache).minify(bundle);
+        assertThat(cache.list()).hasSize(2);
+        String first = FileUtils.readFileToString(Minifier.getMinifiedFile(bundle));
+
+        // The minified file is restored from the cache.
+        FileUtils.deleteQuietly(output);
+        FileUtils.write(bundle, "var a = 1;\n");
+        assertThat(new Minifier(cache).minify(bundle)).isGreaterThan(0);
+        assertThat(FileUtils.readFileToString(Minifier.getMinifiedFile(bundle))).isEqualTo(first);
+
+        // New content: the previous entries are replaced.
+        FileUtils.write(bundle, "var b = 2;\n");
+        new Minifier(cache).minify(bundle);
+        assertThat(cache.list()).hasSize(2);
+        assertThat(FileUtils.readFileToString(Minifier.getMinifiedFile(bundle))).contains("b=2");
+    }
+
+    @Test(expected = MojoExecutionException.class)
+    public void testInvalidBundle() throws Exception {
+        File bundle = new File(output, "acme.js");
+        FileUtils.write(bundle, "var = ;\n");
+        new Minifier(cache).minify(bundle);
+    }
+}
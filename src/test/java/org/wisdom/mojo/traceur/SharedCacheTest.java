@@ -0,0 +1,126 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2014 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.mojo.traceur;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SharedCacheTest {
+
+    File basedir = new File("target/workbench/shared-cache");
+    File directory = new File(basedir, "cache");
+
+    @Before
+    public void setUp() {
+        FileUtils.deleteQuietly(basedir);
+    }
+
+    @Test
+    public void testKeyDoesNotDependOnTheProjectLocation() throws Exception {
+        File a = new File(basedir, "a");
+        File b = new File(basedir, "b");
+        File sourceA = new File(a, "src/main/assets/hello.js");
+        File sourceB = new File(b, "src/main/assets/hello.js");
+        FileUtils.write(sourceA, "class A {}");
+        FileUtils.write(sourceB, "class A {}");
+        File outA = new File(a, "target/out.js");
+        File outB = new File(b, "target/out.js");
+
+        SharedCache cache = new SharedCache(directory, 1024);
+        String key = cache.key(outA, Collections.singletonList(sourceA), a, "0.0.87", "true", "inline");
+        assertThat(cache.key(outB, Collections.singletonList(sourceB), b, "0.0.87", "true", "inline")).isEqualTo(key);
+        // Settings, content and relative paths are part of the key.
+        assertThat(cache.key(outB, Collections.singletonList(sourceB), b, "0.0.87", "false", "inline"))
+                .isNotEqualTo(key);
+        assertThat(cache.key(outB, Collections.singletonList(sourceB), basedir, "0.0.87", "true", "inline"))
+                .isNotEqualTo(key);
+        FileUtils.write(sourceB, "class B {}");
+        assertThat(cache.key(outB, Collections.singletonList(sourceB), b, "0.0.87", "true", "inline"))
+                .isNotEqualTo(key);
+    }
+
+    @Test
+    public void testKeyCoversTheOutputLocationAndTheImports() throws Exception {
+        File source = new File(basedir, "src/main/assets/app.js");
+        File imported = new File(basedir, "src/main/assets/lib.js");
+        FileUtils.write(source, "import './lib';");
+        FileUtils.write(imported, "export var a = 1;");
+        File output = new File(basedir, "target/app.js");
+
+        SharedCache cache = new SharedCache(directory, 1024);
+        String key = cache.key(output, Arrays.asList(source, imported), basedir, "0.0.87");
+        // Modules are named relative to the output directory.
+        assertThat(cache.key(new File(basedir, "target/js/app.js"), Arrays.asList(source, imported), basedir,
+                "0.0.87")).isNotEqualTo(key);
+        FileUtils.write(imported, "export var a = 2;");
+        assertThat(cache.key(output, Arrays.asList(source, imported), basedir, "0.0.87")).isNotEqualTo(key);
+    }
+
+    @Test
+    public void testStoreAndRestore() throws Exception {
+        SharedCache cache = new SharedCache(directory, 1024);
+        File output = new File(basedir, "a/target/out.js");
+        assertThat(cache.restore("0123456789", output)).isFalse();
+        assertThat(output).doesNotExist();
+
+        FileUtils.write(output, "compiled");
+        cache.store("0123456789", output);
+
+        File other = new File(basedir, "b/target/out.js");
+        FileUtils.write(other, "outdated");
+        assertThat(cache.restore("0123456789", other)).isTrue();
+        assertThat(FileUtils.readFileToString(other)).isEqualTo("compiled");
+        // No temporary file left behind.
+        assertThat(other.getParentFile().list()).containsOnly("out.js");
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEntriesAreEvicted() throws Exception {
+        // Room for 3 entries of 10 bytes.
+        SharedCache cache = new SharedCache(directory, 30);
+        File output = new File(basedir, "out.js");
+        FileUtils.write(output, "0123456789");
+        long now = System.currentTimeMillis();
+        String[] keys = {"aa01", "bb02", "cc03"};
+        for (int i = 0; i < keys.length; i++) {
+            cache.store(keys[i], output);
+            for (File entry : FileUtils.listFiles(directory, new String[]{"js"}, true)) {
+                if (entry.getName().startsWith(keys[i])) {
+                    entry.setLastModified(now - 100000 + i * 10000);
+                }
+            }
+        }
+        // Using the first entry makes the second one the least recently used.
+        assertThat(cache.restore("aa01", new File(basedir, "restored.js"))).isTrue();
+
+        cache.store("dd04", output);
+        assertThat(cache.restore("bb02", new File(basedir, "restored.js"))).isFalse();
+        assertThat(cache.restore("aa01", new File(basedir, "restored.js"))).isTrue();
+        assertThat(cache.restore("cc03", new File(basedir, "restored.js"))).isTrue();
+        assertThat(cache.restore("dd04", new File(basedir, "restored.js"))).isTrue();
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2014 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.mojo.traceur;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assume.assumeFalse;
+
+public class TraceurCliTest {
+
+    File basedir = new File("target/workbench/cli");
+
+    @Before
+    public void setUp() {
+        FileUtils.deleteQuietly(basedir);
+    }
+
+    @Test
+    public void testHungProcessIsKilledWhenInterrupted() throws Exception {
+        assumeFalse(System.getProperty("os.name").toLowerCase().contains("win"));
+        // A fake Node printing a line and then hanging, with its output left open.
+        File pid = new File(basedir, "node.pid");
+        File node = new File(basedir, "node");
+        FileUtils.write(node, "#!/bin/sh\n"
+                + "echo $$ > '" + pid.getAbsolutePath() + "'\n"
+                + "echo compiling\n"
+                + "exec sleep 600\n");
+        assertThat(node.setExecutable(true)).isTrue();
+
+        final TraceurCli cli = new TraceurCli(node, basedir, new SystemStreamLog());
+        final AtomicReference<Exception> failure = new AtomicReference<>();
+        Thread runner = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    cli.compile(new File(basedir, "out.js"), Collections.singletonList(new File(basedir, "a.js")),
+                            false, "inline");
+                } catch (MojoExecutionException e) {
+                    failure.set(e);
+                }
+            }
+        };
+        runner.start();
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!(pid.isFile() && pid.length() > 0) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(pid).isFile();
+        Thread.sleep(200);
+
+        runner.interrupt();
+        runner.join(5000);
+        assertThat(runner.isAlive()).isFalse();
+        assertThat(failure.get()).isNotNull();
+        assertThat(failure.get().getMessage()).contains("interrupted");
+
+        // Node has been killed.
+        assertThat(isAlive(FileUtils.readFileToString(pid).trim())).isFalse();
+    }
+
+    private static boolean isAlive(String pid) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline) {
+            if (new ProcessBuilder("kill", "-0", pid).start().waitFor() != 0) {
+                return false;
+            }
+            Thread.sleep(50);
+        }
+        return true;
+    }
+}
@@ -20,13 +20,32 @@
 
 package org.wisdom.mojo.traceur;
 
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
 import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.MojoExecutionException;
 import org.junit.Before;
 import org.junit.Test;
+import org.wisdom.maven.WatchingException;
 
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
 
 /**
  * These are just examples to show how watchers can be tested.
@@ -35,10 +54,12 @@ public class TraceurMojoTest {
 
     private static final String VERSION = "0.0.87";
     File basedir = new File("target/workbench/project");
+    File workbench = new File("target/workbench/concurrent");
 
     @Before
     public void setUp() {
         FileUtils.deleteQuietly(basedir);
+        FileUtils.deleteQuietly(workbench);
     }
 
 
@@ -65,7 +86,82 @@ public class TraceurMojoTest {
         mojo.output = "acme.js";
         mojo.moduleStrategy = "inline";
         mojo.execute();
-        assertThat(mojo.npm).isNotNull();
+        File modules = mojo.getNodeManager().getNodeModulesDirectory();
+        assertThat(TraceurInstallation.isInstalled(modules, VERSION)).isTrue();
+        assertThat(TraceurInstallation.getStamp(modules, VERSION)).isFile();
+    }
+
+    @Test
+    public void testOfflineInstallation() throws Exception {
+        org.wisdom.mojo.traceur.TraceurMojo mojo = new org.wisdom.mojo.traceur.TraceurMojo();
+        mojo.basedir = basedir;
+        mojo.version = VERSION;
+        mojo.buildDirectory = new File(mojo.basedir, "target");
+        mojo.output = "acme.js";
+        mojo.moduleStrategy = "inline";
+        mojo.execute();
+
+        // Install the module from the existing installation, in another modules directory.
+        File installed = new File(mojo.getNodeManager().getNodeModulesDirectory(), TraceurMojo.NPM_NAME);
+        File modules = new File(basedir, "target/node_modules");
+        assertThat(TraceurInstallation.isInstalled(modules, VERSION)).isFalse();
+        TraceurInstallation.installFrom(installed, modules, VERSION, mojo.getLog());
+        TraceurInstallation.installed(modules, VERSION);
+        assertThat(new File(modules, "traceur/" + TraceurCli.SCRIPT)).isFile();
+        assertThat(TraceurInstallation.isInstalled(modules, VERSION)).isTrue();
+
+        // And from a tarball, as built by npm pack.
+        File tarball = new File(basedir, "target/traceur-" + VERSION + ".tgz");
+        tar(installed, tarball);
+        File other = new File(basedir, "target/other_node_modules");
+        TraceurInstallation.installFrom(tarball, other, VERSION, mojo.getLog());
+        assertThat(new File(other, "traceur/" + TraceurCli.SCRIPT)).isFile();
+        assertThat(TraceurInstallation.getVersion(new File(other, "traceur"))).isEqualTo(VERSION);
+        assertThat(other.list()).containsOnly("traceur");
+    }
+
+    @Test
+    public void testOfflineInstallationOfAnotherVersion() throws Exception {
+        org.wisdom.mojo.traceur.TraceurMojo mojo = new org.wisdom.mojo.traceur.TraceurMojo();
+        mojo.basedir = basedir;
+        mojo.version = VERSION;
+        mojo.buildDirectory = new File(mojo.basedir, "target");
+        mojo.output = "acme.js";
+        mojo.moduleStrategy = "inline";
+        mojo.execute();
+
+        File installed = new File(mojo.getNodeManager().getNodeModulesDirectory(), TraceurMojo.NPM_NAME);
+        File tarball = new File(basedir, "target/traceur-" + VERSION + ".tgz");
+        tar(installed, tarball);
+        mojo.traceurPackage = tarball;
+        mojo.version = "0.0.1";
+        try {
+            mojo.execute();
+            fail("Version mismatch expected");
+        } catch (MojoExecutionException e) {
+            assertThat(e.getMessage()).contains("contains Traceur " + VERSION).contains("0.0.1");
+        }
+        // The installed module is left untouched.
+        assertThat(TraceurInstallation.getVersion(installed)).isEqualTo(VERSION);
+        assertThat(TraceurInstallation.isInstalled(mojo.getNodeManager().getNodeModulesDirectory(), VERSION))
+                .isTrue();
+    }
+
+    /**
+     * Creates a tarball of the given module, with the 'package' root used by npm pack.
+     */
+    private static void tar(File module, File tarball) throws IOException {
+        FileUtils.forceMkdir(tarball.getParentFile());
+        try (TarArchiveOutputStream out = new TarArchiveOutputStream(new GZIPOutputStream(
+                new FileOutputStream(tarball)))) {
+            out.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
+            for (File file : FileUtils.listFiles(module, null, true)) {
+                String name = module.toURI().relativize(file.toURI()).getPath();
+                out.putArchiveEntry(new TarArchiveEntry(file, "package/" + name));
+                FileUtils.copyFile(file, out);
+                out.closeArchiveEntry();
+            }
+        }
     }
 
     @Test
@@ -127,6 +223,29 @@ public class TraceurMojoTest {
                 .contains("$traceurRuntime.createClass");
     }
 
+    @Test
+    public void testAllErrorsAreReported() throws Exception {
+        TraceurMojo mojo = new TraceurMojo();
+        mojo.basedir = basedir;
+        mojo.buildDirectory = new File(mojo.basedir, "target");
+        File trigger = new File(basedir, "src/main/resources/assets/trigger.es6.js");
+        File a = new File(basedir, "src/main/resources/assets/a.es6.js");
+        File b = new File(basedir, "src/main/resources/assets/b.es6.js");
+
+        WatchingException exception = mojo.build("[ '" + a.getAbsolutePath() + ":3:5: Unexpected token )',\n"
+                + "  '" + b.getAbsolutePath() + ":7:1: Semi-colon expected' ]\n", trigger);
+        // Reported on the erroneous file, not on the file that triggered the compilation.
+        assertThat(exception.getFile().getAbsoluteFile()).isEqualTo(a.getAbsoluteFile());
+        assertThat(exception.getLine()).isEqualTo(3);
+        assertThat(exception.getCharacter()).isEqualTo(5);
+        assertThat(exception.getMessage()).startsWith("Unexpected token )")
+                .contains("b.es6.js:7:1 - Semi-colon expected");
+
+        exception = mojo.build("Error: Cannot find module 'traceur'\n", trigger);
+        assertThat(exception.getFile()).isEqualTo(trigger);
+        assertThat(exception.getMessage()).isEqualTo("Error: Cannot find module 'traceur'");
+    }
+
     @Test
     public void testAccept() throws Exception {
         org.wisdom.mojo.traceur.TraceurMojo mojo = new org.wisdom.mojo.traceur.TraceurMojo();
@@ -165,4 +284,454 @@ public class TraceurMojoTest {
                 .contains("$traceurRuntime.createClass");
     }
 
+    @Test
+    public void testBuildCache() throws Exception {
+        org.wisdom.mojo.traceur.TraceurMojo mojo = new org.wisdom.mojo.traceur.TraceurMojo();
+        mojo.basedir = basedir;
+        mojo.version = VERSION;
+        mojo.buildDirectory = new File(mojo.basedir, "target");
+        mojo.output = "acme.js";
+        mojo.moduleStrategy = "inline";
+        File source = new File(basedir, "src/main/resources/assets/doc/hello.es6.js");
+        FileUtils.copyFile(new File("src/test/resources/hello.es6.js"), source);
+        mojo.execute();
+
+        final File internal = new File(mojo.getInternalAssetOutputDirectory(), "acme.js");
+        assertThat(internal).isFile();
+
+        // Nothing has changed, the output must not be regenerated.
+        FileUtils.write(internal, "// cached");
+        mojo.execute();
+        assertThat(FileUtils.readFileToString(internal)).isEqualTo("// cached");
+
+        // Changing the settings invalidates the cache.
+        mojo.experimental = true;
+        mojo.execute();
+        assertThat(FileUtils.readFileToString(internal)).contains("$traceurRuntime.createClass");
+
+        // So does changing a source.
+        FileUtils.write(internal, "// cached");
+        FileUtils.write(source, "\nvar other = new Greeter();", true);
+        mojo.execute();
+        assertThat(FileUtils.readFileToString(internal)).contains("other");
+
+        // And deleting the output.
+        FileUtils.forceDelete(internal);
+        mojo.execute();
+        assertThat(internal).isFile();
+    }
+
+    @Test
+    public void testBuildCacheCoversTheImportedFiles() throws Exception {
+        org.wisdom.mojo.traceur.TraceurMojo mojo = new org.wisdom.mojo.traceur.TraceurMojo();
+        mojo.basedir = basedir;
+        mojo.version = VERSION;
+        mojo.buildDirectory = new File(mojo.basedir, "target");
+        mojo.output = "acme.js";
+        mojo.moduleStrategy = "inline";
+        FileUtils.copyFile(new File("src/test/resources/humans.es6.js"), new File(basedir,
+                "src/main/resources/assets/doc/humans.es6.js"));
+        // Imported, but not compiled directly: no marker.
+        File human = new File(basedir, "src/main/resources/assets/doc/human.es6.js");
+        FileUtils.write(human, FileUtils.readFileToString(new File("src/test/resources/human.es6.js"))
+                .replace("//!ES6", ""));
+        mojo.execute();
+
+        final File internal = new File(mojo.getInternalAssetOutputDirectory(), "acme.js");
+        assertThat(FileUtils.readFileToString(internal)).contains("Human").doesNotContain("edited");
+
+        FileUtils.write(human, "\nexport var edited = 42;", true);
+        mojo.execute();
+        assertThat(FileUtils.readFileToString(internal)).contains("edited");
+    }
+
+    @Test
+    public void testBuildCacheIsInvalidatedByTheIncrementalMode() throws Exception {
+        org.wisdom.mojo.traceur.TraceurMojo mojo = new org.wisdom.mojo.traceur.TraceurMojo();
+        mojo.basedir = basedir;
+        mojo.version = VERSION;
+        mojo.buildDirectory = new File(mojo.basedir, "target");
+        mojo.output = "acme.js";
+        mojo.moduleStrategy = "inline";
+        FileUtils.copyFile(new File("src/test/resources/hello.es6.js"), new File(basedir,
+                "src/main/resources/assets/doc/hello.es6.js"));
+        mojo.execute();
+
+        final File internal = new File(mojo.getInternalAssetOutputDirectory(), "acme.js");
+        File fragments = new File(mojo.buildDirectory, "traceur/fragments");
+        assertThat(fragments).doesNotExist();
+
+        FileUtils.write(internal, "// cached");
+        mojo.incremental = true;
+        mojo.execute();
+        assertThat(FileUtils.readFileToString(internal)).contains("Greeter");
+        assertThat(FileUtils.listFiles(fragments, new String[]{"js"}, true)).hasSize(1);
+
+        FileUtils.write(internal, "// cached");
+        mojo.incremental = false;
+        mojo.execute();
+        assertThat(FileUtils.readFileToString(internal)).contains("Greeter");
+    }
+
+    @Test
+    public void testUnchangedOutputIsNotRewritten() throws Exception {
+        TraceurMojo mojo = new TraceurMojo();
+        mojo.basedir = basedir;
+        mojo.version = VERSION;
+        mojo.buildDirectory = new File(mojo.basedir, "target");
+        mojo.output = "acme.js";
+        mojo.moduleStrategy = "inline";
+        mojo.buildCache = false;
+        File source = new File(basedir, "src/main/resources/assets/doc/hello.es6.js");
+        FileUtils.copyFile(new File("src/test/resources/hello.es6.js"), source);
+        mojo.execute();
+
+        File internal = new File(mojo.getInternalAssetOutputDirectory(), "acme.js");
+        assertThat(internal.setLastModified(internal.lastModified() - 60000)).isTrue();
+        long lastModified = internal.lastModified();
+
+        // Compiled again, to the same content.
+        mojo.execute();
+        assertThat(internal.lastModified()).isEqualTo(lastModified);
+
+        FileUtils.write(source, "\nvar other = new Greeter();", true);
+        mojo.execute();
+        assertThat(internal.lastModified()).isNotEqualTo(lastModified);
+        assertThat(FileUtils.readFileToString(internal)).contains("other");
+        // No temporary file is left.
+        assertThat(internal.getParentFile().list()).containsOnly("acme.js", "doc");
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        TraceurMojo mojo = new TraceurMojo();
+        mojo.basedir = basedir;
+        mojo.version = VERSION;
+        mojo.buildDirectory = new File(mojo.basedir, "target");
+        mojo.output = "acme.js";
+        mojo.moduleStrategy = "inline";
+        FileUtils.copyFile(new File("src/test/resources/hello.es6.js"), new File(basedir,
+                "src/main/resources/assets/doc/hello.es6.js"));
+        // Installs Traceur.
+        mojo.execute();
+
+        File internal = new File(mojo.getInternalAssetOutputDirectory(), "acme.js");
+        FileUtils.forceDelete(internal);
+        mojo.timeout = 1;
+        try {
+            mojo.execute();
+            fail("Timeout expected");
+        } catch (MojoExecutionException e) {
+            assertThat(e.getMessage()).contains("not completed within 1 ms");
+        }
+        // The output is left untouched.
+        assertThat(internal).doesNotExist();
+
+        mojo.timeout = 0;
+        mojo.execute();
+        assertThat(internal).isFile();
+    }
+
+    @Test
+    public void testIncrementalCompilation() throws Exception {
+        org.wisdom.mojo.traceur.TraceurMojo mojo = new org.wisdom.mojo.traceur.TraceurMojo();
+        mojo.basedir = basedir;
+        mojo.version = VERSION;
+        mojo.buildDirectory = new File(mojo.basedir, "target");
+        mojo.output = "acme.js";
+        mojo.moduleStrategy = "inline";
+        mojo.incremental = true;
+        File hello = new File(basedir, "src/main/resources/assets/doc/hello.es6.js");
+        File human = new File(basedir, "src/main/resources/assets/doc/human.es6.js");
+        FileUtils.copyFile(new File("src/test/resources/hello.es6.js"), hello);
+        FileUtils.copyFile(new File("src/test/resources/human.es6.js"), human);
+        mojo.execute();
+
+        final File internal = new File(mojo.getInternalAssetOutputDirectory(), "acme.js");
+        assertThat(FileUtils.readFileToString(internal)).contains("Greeter").contains("Human");
+        File fragments = new File(mojo.buildDirectory, "traceur/fragments");
+        assertThat(FileUtils.listFiles(fragments, new String[]{"js"}, true)).hasSize(2);
+
+        FileUtils.write(hello, "\nvar other = new Greeter();", true);
+        mojo.fileUpdated(hello);
+        assertThat(FileUtils.readFileToString(internal)).contains("other").contains("Human");
+
+        FileUtils.forceDelete(human);
+        mojo.fileDeleted(human);
+        assertThat(FileUtils.readFileToString(internal)).contains("Greeter").doesNotContain("Human");
+        assertThat(FileUtils.listFiles(fragments, new String[]{"js"}, true)).hasSize(1);
+    }
+
+    @Test
+    public void testIncrementalCompilationKeepsTheModuleNames() throws Exception {
+        org.wisdom.mojo.traceur.TraceurMojo mojo = new org.wisdom.mojo.traceur.TraceurMojo();
+        mojo.basedir = basedir;
+        mojo.version = VERSION;
+        mojo.buildDirectory = new File(mojo.basedir, "target");
+        mojo.output = "acme.js";
+        mojo.moduleStrategy = "register";
+        FileUtils.copyFile(new File("src/test/resources/humans.es6.js"), new File(basedir,
+                "src/main/resources/assets/doc/humans.es6.js"));
+        FileUtils.copyFile(new File("src/test/resources/human.es6.js"), new File(basedir,
+                "src/main/resources/assets/doc/human.es6.js"));
+        mojo.execute();
+
+        final File internal = new File(mojo.getInternalAssetOutputDirectory(), "acme.js");
+        Set<String> names = getRegisteredModules(internal);
+        assertThat(names).hasSize(2);
+
+        mojo.incremental = true;
+        mojo.execute();
+        assertThat(getRegisteredModules(internal)).isEqualTo(names);
+    }
+
+    private static Set<String> getRegisteredModules(File bundle) throws IOException {
+        Set<String> names = new TreeSet<>();
+        Matcher matcher = Pattern.compile("System\\.register(?:Module)?\\(\"([^\"]+)\"")
+                .matcher(FileUtils.readFileToString(bundle));
+        while (matcher.find()) {
+            names.add(matcher.group(1));
+        }
+        return names;
+    }
+
+    @Test
+    public void testMetricsReport() throws Exception {
+        org.wisdom.mojo.traceur.TraceurMojo mojo = new org.wisdom.mojo.traceur.TraceurMojo();
+        mojo.basedir = basedir;
+        mojo.version = VERSION;
+        mojo.buildDirectory = new File(mojo.basedir, "target");
+        mojo.output = "acme.js";
+        mojo.moduleStrategy = "inline";
+        File source = new File(basedir, "src/main/resources/assets/doc/hello.es6.js");
+        FileUtils.copyFile(new File("src/test/resources/hello.es6.js"), source);
+        mojo.execute();
+
+        File report = new File(mojo.buildDirectory, "traceur/metrics.json");
+        assertThat(report).isFile();
+        assertThat(FileUtils.readFileToString(report)).contains("\"filesScanned\": 1")
+                .contains("\"filesCompiled\": 1").contains("\"events\": 0");
+
+        mojo.fileUpdated(source);
+        assertThat(FileUtils.readFileToString(report)).contains("\"events\": 1");
+    }
+
+    @Test
+    public void testConcurrentExecutions() throws Exception {
+        // Simulates a parallel reactor build: one mojo instance per project, all executed at the same time.
+        List<org.wisdom.mojo.traceur.TraceurMojo> mojos = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            org.wisdom.mojo.traceur.TraceurMojo mojo = new org.wisdom.mojo.traceur.TraceurMojo();
+            mojo.basedir = new File(workbench, "project-" + i);
+            mojo.version = VERSION;
+            mojo.buildDirectory = new File(mojo.basedir, "target");
+            mojo.output = "acme.js";
+            mojo.moduleStrategy = "inline";
+            FileUtils.copyFile(new File("src/test/resources/hello.es6.js"), new File(mojo.basedir,
+                    "src/main/resources/assets/doc/hello.es6.js"));
+            FileUtils.copyFile(new File("src/test/resources/human.es6.js"), new File(mojo.basedir,
+                    "src/main/assets/doc/human.es6.js"));
+            mojos.add(mojo);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(mojos.size());
+        try {
+            List<Future<Void>> executions = new ArrayList<>();
+            for (final org.wisdom.mojo.traceur.TraceurMojo mojo : mojos) {
+                executions.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        mojo.execute();
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> execution : executions) {
+                execution.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        for (org.wisdom.mojo.traceur.TraceurMojo mojo : mojos) {
+            File internal = new File(mojo.getInternalAssetOutputDirectory(), "acme.js");
+            File external = new File(mojo.getExternalAssetsOutputDirectory(), "acme.js");
+            assertThat(FileUtils.readFileToString(internal)).contains("Greeter").doesNotContain("Human");
+            assertThat(FileUtils.readFileToString(external)).contains("Human").doesNotContain("Greeter");
+            assertThat(new File(mojo.buildDirectory, "traceur/metrics.json")).isFile();
+        }
+    }
+
+    @Test
+    public void testConcurrentInstallations() throws Exception {
+        // Concurrent installations of the same module directory are serialized, and done only once.
+        final File modules = new File(workbench, "node_modules");
+        org.wisdom.mojo.traceur.TraceurMojo mojo = new org.wisdom.mojo.traceur.TraceurMojo();
+        mojo.basedir = basedir;
+        mojo.version = VERSION;
+        mojo.buildDirectory = new File(mojo.basedir, "target");
+        mojo.output = "acme.js";
+        mojo.moduleStrategy = "inline";
+        mojo.execute();
+        final File installed = new File(mojo.getNodeManager().getNodeModulesDirectory(), TraceurMojo.NPM_NAME);
+        final org.apache.maven.plugin.logging.Log log = mojo.getLog();
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> installations = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                installations.add(executor.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() throws Exception {
+                        try (java.io.Closeable ignored = TraceurInstallation.lock(modules)) {
+                            if (TraceurInstallation.isInstalled(modules, VERSION)) {
+                                return false;
+                            }
+                            TraceurInstallation.installFrom(installed, modules, VERSION, log);
+                            TraceurInstallation.installed(modules, VERSION);
+                            return true;
+                        }
+                    }
+                }));
+            }
+            int count = 0;
+            for (Future<Boolean> installation : installations) {
+                if (installation.get()) {
+                    count++;
+                }
+            }
+            assertThat(count).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(TraceurInstallation.isInstalled(modules, VERSION)).isTrue();
+    }
+
+    @Test
+    public void testSharedCache() throws Exception {
+        File cache = new File(workbench, "shared-cache");
+        List<org.wisdom.mojo.traceur.TraceurMojo> mojos = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            org.wisdom.mojo.traceur.TraceurMojo mojo = new org.wisdom.mojo.traceur.TraceurMojo();
+            mojo.basedir = new File(workbench, "project-" + i);
+            mojo.version = VERSION;
+            mojo.buildDirectory = new File(mojo.basedir, "target");
+            mojo.output = "acme.js";
+            mojo.moduleStrategy = "inline";
+            mojo.sharedCache = true;
+            mojo.sharedCacheDirectory = cache;
+            FileUtils.copyFile(new File("src/test/resources/hello.es6.js"), new File(mojo.basedir,
+                    "src/main/resources/assets/doc/hello.es6.js"));
+            mojos.add(mojo);
+        }
+
+        mojos.get(0).execute();
+        File first = new File(mojos.get(0).getInternalAssetOutputDirectory(), "acme.js");
+        assertThat(FileUtils.readFileToString(first)).contains("Greeter");
+
+        // Same sources, same settings: the second project reuses the output of the first one.
+        mojos.get(1).execute();
+        File second = new File(mojos.get(1).getInternalAssetOutputDirectory(), "acme.js");
+        assertThat(FileUtils.readFileToString(second)).isEqualTo(FileUtils.readFileToString(first));
+        assertThat(FileUtils.readFileToString(new File(mojos.get(1).buildDirectory, "traceur/metrics.json")))
+                .contains("\"filesCompiled\": 0");
+    }
+
+    @Test
+    public void testExcludes() throws Exception {
+        org.wisdom.mojo.traceur.TraceurMojo mojo = new org.wisdom.mojo.traceur.TraceurMojo();
+        mojo.basedir = basedir;
+        mojo.version = VERSION;
+        mojo.buildDirectory = new File(mojo.basedir, "target");
+        mojo.output = "acme.js";
+        mojo.moduleStrategy = "inline";
+        mojo.excludes = new String[]{"libs/**"};
+        FileUtils.copyFile(new File("src/test/resources/hello.es6.js"), new File(basedir,
+                "src/main/resources/assets/doc/hello.es6.js"));
+        File excluded = new File(basedir, "src/main/resources/assets/libs/human.es6.js");
+        FileUtils.copyFile(new File("src/test/resources/human.es6.js"), excluded);
+        mojo.execute();
+
+        final File internal = new File(mojo.getInternalAssetOutputDirectory(), "acme.js");
+        assertThat(FileUtils.readFileToString(internal)).contains("Greeter").doesNotContain("Human");
+        assertThat(FileUtils.readFileToString(new File(mojo.buildDirectory, "traceur/metrics.json")))
+                .contains("\"filesScanned\": 1");
+        assertThat(mojo.accept(excluded)).isFalse();
+        assertThat(mojo.accept(new File(basedir, "src/main/resources/assets/doc/hello.es6.js"))).isTrue();
+    }
+
+    @Test
+    public void testBundles() throws Exception {
+        org.wisdom.mojo.traceur.TraceurMojo mojo = new org.wisdom.mojo.traceur.TraceurMojo();
+        mojo.basedir = basedir;
+        mojo.version = VERSION;
+        mojo.buildDirectory = new File(mojo.basedir, "target");
+        mojo.output = "acme.js";
+        mojo.moduleStrategy = "inline";
+        mojo.buildCache = false;
+        mojo.bundles = Arrays.asList(
+                new Bundle("greeter.js", new String[]{"hello*.js"}, null),
+                new Bundle("people.js", new String[]{"people/*"}, "inline"));
+        File hello = new File(basedir, "src/main/resources/assets/doc/hello.es6.js");
+        File human = new File(basedir, "src/main/resources/assets/people/human.es6.js");
+        FileUtils.copyFile(new File("src/test/resources/hello.es6.js"), hello);
+        FileUtils.copyFile(new File("src/test/resources/human.es6.js"), human);
+        mojo.execute();
+
+        final File greeter = new File(mojo.getInternalAssetOutputDirectory(), "greeter.js");
+        final File people = new File(mojo.getInternalAssetOutputDirectory(), "people.js");
+        assertThat(new File(mojo.getInternalAssetOutputDirectory(), "acme.js")).doesNotExist();
+        assertThat(FileUtils.readFileToString(greeter)).contains("Greeter").doesNotContain("Human");
+        assertThat(FileUtils.readFileToString(people)).contains("Human").doesNotContain("Greeter");
+
+        // Only the bundle containing the changed file is recompiled.
+        FileUtils.write(people, "// untouched");
+        FileUtils.write(hello, "\nvar other = new Greeter();", true);
+        mojo.fileUpdated(hello);
+        assertThat(FileUtils.readFileToString(greeter)).contains("other");
+        assertThat(FileUtils.readFileToString(people)).isEqualTo("// untouched");
+
+        FileUtils.write(human, "\nvar other = new Human();", true);
+        mojo.fileUpdated(human);
+        assertThat(FileUtils.readFileToString(people)).contains("Human");
+    }
+
+    @Test(expected = MojoExecutionException.class)
+    public void testBundlesWithTheSameOutput() throws Exception {
+        org.wisdom.mojo.traceur.TraceurMojo mojo = new org.wisdom.mojo.traceur.TraceurMojo();
+        mojo.basedir = basedir;
+        mojo.version = VERSION;
+        mojo.buildDirectory = new File(mojo.basedir, "target");
+        mojo.moduleStrategy = "inline";
+        mojo.bundles = Arrays.asList(new Bundle("a.js", null, null), new Bundle("a.js", null, null));
+        mojo.execute();
+    }
+
+    @Test
+    public void testRuntime() throws Exception {
+        org.wisdom.mojo.traceur.TraceurMojo mojo = new org.wisdom.mojo.traceur.TraceurMojo();
+        mojo.basedir = basedir;
+        mojo.version = VERSION;
+        mojo.buildDirectory = new File(mojo.basedir, "target");
+        mojo.output = "acme.js";
+        mojo.moduleStrategy = "inline";
+        mojo.runtime = true;
+        mojo.precompress = true;
+        FileUtils.copyFile(new File("src/test/resources/hello.es6.js"), new File(basedir,
+                "src/main/resources/assets/doc/hello.es6.js"));
+        mojo.execute();
+
+        File runtime = new File(mojo.getInternalAssetOutputDirectory(), TraceurRuntime.getName(VERSION));
+        assertThat(runtime).isFile();
+        assertThat(new File(runtime.getParentFile(), runtime.getName() + ".gz")).isFile();
+        assertThat(FileUtils.readFileToString(runtime)).contains("$traceurRuntime");
+        assertThat(BundlePublisher.readManifest(new File(mojo.getInternalAssetOutputDirectory(),
+                BundlePublisher.MANIFEST)).get(TraceurRuntime.LOGICAL_NAME)).isEqualTo(runtime.getName());
+
+        // Already published, not rewritten.
+        long lastModified = runtime.lastModified();
+        Thread.sleep(1100);
+        mojo.execute();
+        assertThat(runtime.lastModified()).isEqualTo(lastModified);
+    }
 }
@@ -0,0 +1,62 @@
+/*
+ * #%L
+ * Wisdom-Framework
+ * %%
+ * Copyright (C) 2013 - 2014 Wisdom Framework
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package org.wisdom.mojo.traceur;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TraceurRuntimeTest {
+
+    File basedir = new File("target/workbench/runtime");
+    File traceur = new File(basedir, "node_modules/traceur");
+    File output = new File(basedir, "assets");
+
+    @Before
+    public void setUp() throws Exception {
+        FileUtils.deleteQuietly(basedir);
+        FileUtils.write(new File(traceur, TraceurRuntime.SCRIPT), "var $traceurRuntime = {};");
+    }
+
+    @Test
+    public void testPreviousVersionIsRemoved() throws Exception {
+        // Files of the project, with names close to the runtime.
+        FileUtils.write(new File(output, "traceur-runtime-shim.js"), "// shim");
+        FileUtils.write(new File(output, "traceur-runtime-0.0.1.js"), "// vendored");
+
+        TraceurRuntime.publish(traceur, "0.0.86", output, true);
+        assertThat(new File(output, "traceur-runtime-0.0.86.js")).isFile();
+        assertThat(new File(output, "traceur-runtime-0.0.86.js.gz")).isFile();
+
+        assertThat(TraceurRuntime.publish(traceur, "0.0.87", output, true)).isGreaterThan(0);
+        assertThat(output.list()).containsOnly("traceur-runtime-shim.js", "traceur-runtime-0.0.1.js",
+                "traceur-runtime-0.0.87.js", "traceur-runtime-0.0.87.js.gz", BundlePublisher.MANIFEST);
+        assertThat(BundlePublisher.readManifest(new File(output, BundlePublisher.MANIFEST))
+                .get(TraceurRuntime.LOGICAL_NAME)).isEqualTo("traceur-runtime-0.0.87.js");
+
+        // Published again: nothing is written nor removed.
+        assertThat(TraceurRuntime.publish(traceur, "0.0.87", output, true)).isEqualTo(0);
+        assertThat(output.list()).hasSize(5);
+    }
+}
@@ -25,6 +25,8 @@ import org.junit.Test;
 import org.wisdom.maven.WatchingException;
 
 import java.io.File;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.fail;
@@ -137,4 +139,112 @@ public class TraceurTest {
         assertThat(output).isFile();
         assertThat(FileUtils.readFileToString(output)).doesNotContain("Bob");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testCompilationWithDaemon() throws Exception {
+        org.wisdom.mojo.traceur.TraceurMojo mojo = new org.wisdom.mojo.traceur.TraceurMojo();
+        mojo.basedir = basedir;
+        mojo.version = VERSION;
+        mojo.buildDirectory = new File(mojo.basedir, "target");
+        mojo.output = "acme.js";
+        mojo.moduleStrategy = "inline";
+        mojo.daemon = true;
+        mojo.execute();
+
+        File source = new File(basedir, "src/main/resources/assets/doc/hello.es6.js");
+        FileUtils.copyFile(new File("src/test/resources/hello.es6.js"), source);
+        mojo.fileCreated(source);
+
+        final File output = new File(mojo.getInternalAssetOutputDirectory(), "acme.js");
+        assertThat(output).isFile();
+        assertThat(FileUtils.readFileToString(output)).contains("$traceurRuntime.createClass");
+
+        File erroneous = new File(basedir, "src/main/resources/assets/doc/erroneous.es6.js");
+        FileUtils.copyFile(new File("src/test/resources/erroneous.es6.js"), erroneous);
+        try {
+            mojo.fileCreated(erroneous);
+            fail("Compilation error expected");
+        } catch (WatchingException e) {
+            // Excepted exception
+            assertThat(e.getLine()).isEqualTo(11);
+            assertThat(e.getMessage()).isEqualTo("Unexpected end of input");
+        }
+    }
+
+    @Test
+    public void testCompilationErrorsInBothDirectories() throws Exception {
+        org.wisdom.mojo.traceur.TraceurMojo mojo = new org.wisdom.mojo.traceur.TraceurMojo();
+        mojo.basedir = basedir;
+        mojo.version = VERSION;
+        mojo.buildDirectory = new File(mojo.basedir, "target");
+        mojo.output = "acme.js";
+        mojo.moduleStrategy = "inline";
+        FileUtils.copyFile(new File("src/test/resources/erroneous.es6.js"), new File(basedir,
+                "src/main/resources/assets/doc/erroneous.es6.js"));
+        FileUtils.copyFile(new File("src/test/resources/erroneous.es6.js"), new File(basedir,
+                "src/main/assets/doc/erroneous.es6.js"));
+
+        try {
+            mojo.execute();
+            fail("Compilation error expected");
+        } catch (TraceurCompilationException e) {
+            // Excepted exception, both errors are reported.
+            assertThat(e.getErrorStream()).contains("resources/assets/doc/erroneous.es6.js")
+                    .contains("main/assets/doc/erroneous.es6.js");
+        }
+    }
+
+    @Test
+    public void testBatchedCompilation() throws Exception {
+        final List<TraceurDaemon> daemons = new CopyOnWriteArrayList<>();
+        org.wisdom.mojo.traceur.TraceurMojo mojo = new org.wisdom.mojo.traceur.TraceurMojo() {
+            @Override
+            TraceurDaemon createTraceurDaemon() {
+                TraceurDaemon daemon = super.createTraceurDaemon();
+                daemons.add(daemon);
+                return daemon;
+            }
+        };
+        mojo.basedir = basedir;
+        mojo.version = VERSION;
+        mojo.buildDirectory = new File(mojo.basedir, "target");
+        mojo.output = "acme.js";
+        mojo.moduleStrategy = "inline";
+        mojo.batch = true;
+        FileUtils.copyFile(new File("src/test/resources/hello.es6.js"), new File(basedir,
+                "src/main/resources/assets/doc/hello.es6.js"));
+        FileUtils.copyFile(new File("src/test/resources/hello.es6.js"), new File(basedir,
+                "src/main/assets/doc/hello.es6.js"));
+        mojo.execute();
+
+        assertThat(FileUtils.readFileToString(new File(mojo.getInternalAssetOutputDirectory(), "acme.js")))
+                .contains("$traceurRuntime.createClass");
+        assertThat(FileUtils.readFileToString(new File(mojo.getExternalAssetsOutputDirectory(), "acme.js")))
+                .contains("$traceurRuntime.createClass");
+
+        // Both trees have been compiled by a single Node process, stopped at the end of the run.
+        assertThat(daemons).hasSize(1);
+        assertThat(daemons.get(0).getStartCount()).isEqualTo(1);
+        assertThat(daemons.get(0).getCompilationCount()).isEqualTo(2);
+        assertThat(daemons.get(0).isAlive()).isFalse();
+
+        // Each target reports its own errors.
+        FileUtils.copyFile(new File("src/test/resources/erroneous.es6.js"), new File(basedir,
+                "src/main/resources/assets/doc/erroneous.es6.js"));
+        FileUtils.copyFile(new File("src/test/resources/erroneous.es6.js"), new File(basedir,
+                "src/main/assets/doc/erroneous.es6.js"));
+        try {
+            mojo.execute();
+            fail("Compilation error expected");
+        } catch (TraceurCompilationException e) {
+            List<CompilationError> errors = e.getErrors();
+            assertThat(errors).hasSize(2);
+            assertThat(errors.get(0).getLine()).isEqualTo(11);
+            assertThat(errors.get(0).getFile()).isNotEqualTo(errors.get(1).getFile());
+        }
+        assertThat(daemons).hasSize(2);
+        assertThat(daemons.get(1).getStartCount()).isEqualTo(1);
+        assertThat(daemons.get(1).getCompilationCount()).isEqualTo(2);
+        assertThat(daemons.get(1).isAlive()).isFalse();
+    }
+}